@@ -0,0 +1,186 @@
+package javasourcequickview;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Results of analysing a source text, keyed by a hash of the text itself so a reopened
+ * tab or an identical copy of a file skips lexing and outline parsing. Entries are kept
+ * in least-recently-used order and dropped once their estimated size exceeds the budget.
+ */
+final class AnalysisCache {
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Key, Analysis> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+    private long hits;
+    private long misses;
+
+    AnalysisCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Returns the cached analysis of the text behind {@code key}, or {@code null}. An entry
+     * whose primary type came from its file name only serves files of that name, and one
+     * without tokens does not count when {@code needTokens} is set.
+     */
+    synchronized Analysis get(Key key, String fileName, boolean needTokens) {
+        Analysis analysis = peek(key, fileName);
+        if (analysis != null && (!needTokens || analysis.tokens != null)) {
+            hits++;
+            return analysis;
+        }
+        misses++;
+        return null;
+    }
+
+    /** Like {@link #get} but ignores tokens and leaves the counters alone. */
+    synchronized Analysis peek(Key key, String fileName) {
+        Analysis analysis = entries.get(key);
+        if (analysis == null || (analysis.fallbackName != null && !analysis.fallbackName.equals(fileName))) {
+            return null;
+        }
+        return analysis;
+    }
+
+    synchronized void put(Key key, Analysis analysis) {
+        Analysis previous = entries.put(key, analysis);
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += analysis.bytes;
+        for (Iterator<Analysis> it = entries.values().iterator(); usedBytes > budgetBytes && it.hasNext();) {
+            Analysis eldest = it.next();
+            if (eldest == analysis) {
+                break;
+            }
+            usedBytes -= eldest.bytes;
+            it.remove();
+        }
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    long budgetBytes() {
+        return budgetBytes;
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars together with the length. */
+    static final class Key {
+
+        final long hash;
+        final int length;
+
+        private Key(long hash, int length) {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        static Key of(CharSequence text) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0, n = text.length(); i < n; i++) {
+                h ^= text.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return new Key(h, text.length());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hash == hash && ((Key) o).length == length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    static final class Analysis {
+
+        final int[] tokens;
+        final LineIndex lines;
+        final String packageName;
+        final List<String> imports;
+        final String primaryType;
+        final List<String> parentTypes;
+        final List<OutlineParser.Declaration> declarations;
+        final List<JavaSourceQuickView.MethodInfo> methods;
+        final String fallbackName;
+        final long bytes;
+
+        /**
+         * @param tokens       lexer output, or {@code null} when only the outline was needed
+         * @param declarations the top-level declarations, with nested ones as their children
+         * @param fallbackName the file name the primary type was derived from, or
+         *                     {@code null} when the text declares it
+         */
+        Analysis(int[] tokens, LineIndex lines, String packageName, List<String> imports, String primaryType,
+                List<String> parentTypes, List<OutlineParser.Declaration> declarations,
+                List<JavaSourceQuickView.MethodInfo> methods, String fallbackName) {
+            this.tokens = tokens;
+            this.lines = lines;
+            this.packageName = packageName;
+            this.imports = imports;
+            this.primaryType = primaryType;
+            this.parentTypes = parentTypes;
+            this.declarations = declarations;
+            this.methods = methods;
+            this.fallbackName = fallbackName;
+            this.bytes = estimateBytes();
+        }
+
+        Analysis withTokens(int[] tokens) {
+            return new Analysis(tokens, lines, packageName, imports, primaryType, parentTypes, declarations, methods, fallbackName);
+        }
+
+        // Rough heap footprint: object headers plus string and array payloads.
+        private long estimateBytes() {
+            long total = 128 + (tokens != null ? 16 + 4L * tokens.length : 0) + lines.bytes() + chars(packageName, primaryType);
+            for (String name : imports) {
+                total += 48 + chars(name);
+            }
+            for (String parent : parentTypes) {
+                total += 48 + chars(parent);
+            }
+            for (OutlineParser.Declaration d : OutlineParser.flatten(declarations)) {
+                // parameters are shared with the method infos and counted there
+                total += 112 + chars(d.name, d.modifiers, d.typeParameters, d.type, d.throwsClause);
+                for (String supertype : d.supertypes) {
+                    total += 48 + chars(supertype);
+                }
+            }
+            for (JavaSourceQuickView.MethodInfo m : methods) {
+                total += 160 + chars(m.name, m.returnType, m.modifiers, m.accessModifier, m.throwsClause, m.ownerType);
+                for (JavaSourceQuickView.ParamInfo p : m.params) {
+                    total += 64 + chars(p.type, p.name);
+                }
+            }
+            return total;
+        }
+
+        private static long chars(String... values) {
+            long total = 0;
+            for (String value : values) {
+                total += value != null ? 48 + 2L * value.length() : 0;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package javasourcequickview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.SimpleAttributeSet;
+
+/**
+ * A {@link DefaultStyledDocument} that is filled once, fully styled, from a
+ * {@link JavaLexer} token array. The whole text goes in through a single batched
+ * {@code ElementSpec} insert, so the document fires one event instead of one per token.
+ * Build it on a worker thread before it is shown anywhere.
+ */
+final class BulkStyledDocument extends DefaultStyledDocument {
+
+    /**
+     * @param base   character attributes for untokenized text
+     * @param styles indexed by token kind; a null entry leaves the token with {@code base}
+     */
+    void load(String content, int[] tokens, AttributeSet base, AttributeSet[] styles) throws BadLocationException {
+        AttributeSet[] runStyles = new AttributeSet[styles.length];
+        for (int k = 0; k < styles.length; k++) {
+            if (styles[k] != null) {
+                SimpleAttributeSet merged = new SimpleAttributeSet(base);
+                merged.addAttributes(styles[k]);
+                runStyles[k] = merged;
+            }
+        }
+        // Everything up to the last line break goes in as specs; a trailing partial line has
+        // to join the paragraph the empty document already has, so it is inserted as text.
+        int cut = content.lastIndexOf('\n') + 1;
+        char[] chars = content.substring(0, cut).toCharArray();
+        List<ElementSpec> specs = new ArrayList<>();
+        int pos = 0;
+        int t = 0;
+        for (; t < JavaLexer.count(tokens) && JavaLexer.start(tokens, t) < cut; t++) {
+            AttributeSet style = runStyles[JavaLexer.kind(tokens, t)];
+            if (style == null) {
+                continue;
+            }
+            int start = JavaLexer.start(tokens, t);
+            addRun(specs, chars, pos, start, base);
+            pos = Math.min(cut, start + JavaLexer.length(tokens, t));
+            addRun(specs, chars, start, pos, style);
+        }
+        addRun(specs, chars, pos, cut, base);
+        if (!specs.isEmpty()) {
+            insert(0, specs.toArray(new ElementSpec[0]));
+        }
+        if (cut < content.length()) {
+            insertString(cut, content.substring(cut), base);
+            for (t = Math.max(0, t - 1); t < JavaLexer.count(tokens); t++) {
+                int end = JavaLexer.start(tokens, t) + JavaLexer.length(tokens, t);
+                AttributeSet style = runStyles[JavaLexer.kind(tokens, t)];
+                if (style != null && end > cut) {
+                    int start = Math.max(cut, JavaLexer.start(tokens, t));
+                    setCharacterAttributes(start, end - start, style, true);
+                }
+            }
+        }
+    }
+
+    // Splits a run at line breaks, closing the paragraph after each one.
+    private static void addRun(List<ElementSpec> specs, char[] chars, int from, int to, AttributeSet attrs) {
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (chars[i] == '\n') {
+                specs.add(new ElementSpec(attrs, ElementSpec.ContentType, Arrays.copyOfRange(chars, start, i + 1), 0, i + 1 - start));
+                specs.add(new ElementSpec(null, ElementSpec.EndTagType));
+                specs.add(new ElementSpec(null, ElementSpec.StartTagType));
+                start = i + 1;
+            }
+        }
+        if (to > start) {
+            specs.add(new ElementSpec(attrs, ElementSpec.ContentType, Arrays.copyOfRange(chars, start, to), 0, to - start));
+        }
+    }
+}
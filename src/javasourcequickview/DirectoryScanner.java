@@ -0,0 +1,215 @@
+package javasourcequickview;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Fills a {@link ProjectIndex} from disk. Each directory is listed with a depth-1
+ * {@code walkFileTree}, which hands out the attributes read during the listing, and its
+ * subdirectories are forked onto a shared pool so stat latency overlaps across cores.
+ * Ignored directories are dropped while their parent is listed, so they are never opened.
+ */
+final class DirectoryScanner {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
+
+    private final ProjectIndex index;
+    private final Set<Object> visitedDirs = ConcurrentHashMap.newKeySet();
+
+    DirectoryScanner(ProjectIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Lists {@code dir} and everything below it. {@code listed} is called from pool threads
+     * each time a directory's children have been filled in, parents before children.
+     */
+    void scan(ProjectIndex.Entry dir, BooleanSupplier cancelled, Consumer<ProjectIndex.Entry> listed) {
+        if (dir.fileKey != null) {
+            visitedDirs.add(dir.fileKey);
+        }
+        POOL.invoke(new ScanTask(dir, cancelled, listed, false));
+    }
+
+    /**
+     * Scans a directory that appeared after the initial scan. Its file keys may still be
+     * known from where it was moved from, so only a key repeated along its own ancestor
+     * chain counts as a loop.
+     */
+    void scanAdded(ProjectIndex.Entry dir, Consumer<ProjectIndex.Entry> listed) {
+        POOL.invoke(new ScanTask(dir, () -> false, listed, true));
+    }
+
+    /**
+     * Lists {@code dir} again, keeping the existing entries for names that are still there.
+     * Directories that are new come back unlisted and still need a {@link #scanAdded}.
+     */
+    ProjectIndex.Entry[] relist(ProjectIndex.Entry dir, Set<ProjectIndex.Entry> rewritten) {
+        Map<String, ProjectIndex.Entry> previous = new HashMap<>();
+        for (ProjectIndex.Entry child : dir.getChildren()) {
+            previous.put(child.name, child);
+        }
+        return list(dir, previous, rewritten, true);
+    }
+
+    /** Stats the given directories in parallel and returns those whose modification time moved. */
+    List<ProjectIndex.Entry> findStale(List<ProjectIndex.Entry> dirs, BooleanSupplier cancelled) {
+        return POOL.submit(() -> dirs.parallelStream()
+                .filter(dir -> {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException();
+                    }
+                    try {
+                        long modified = Files.getLastModifiedTime(dir.file.toPath()).toMillis();
+                        return modified != dir.lastModified;
+                    } catch (IOException ex) {
+                        return false;
+                    }
+                })
+                .collect(Collectors.toList())).join();
+    }
+
+    /**
+     * What identifies a directory when looking for link cycles: the file key where the file
+     * system has one, otherwise (on Windows, for one) the real path with links resolved.
+     */
+    static Object loopKey(Path dir, BasicFileAttributes attrs) {
+        if (attrs.fileKey() != null) {
+            return attrs.fileKey();
+        }
+        try {
+            return dir.toRealPath();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private boolean isLoop(ProjectIndex.Entry dir, Object key, boolean ancestorsOnly) {
+        if (key == null) {
+            return false;
+        }
+        if (!ancestorsOnly) {
+            return !visitedDirs.add(key);
+        }
+        for (ProjectIndex.Entry e = dir; e != null; e = e.parent) {
+            if (key.equals(e.fileKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ProjectIndex.Entry[] list(ProjectIndex.Entry dir, Map<String, ProjectIndex.Entry> previous,
+            Set<ProjectIndex.Entry> rewritten, boolean ancestorsOnly) {
+        List<ProjectIndex.Entry> kept = new ArrayList<>();
+        try {
+            Files.walkFileTree(dir.file.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1,
+                    new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String name = file.getFileName().toString();
+                    ProjectIndex.Entry existing = previous.get(name);
+                    ProjectIndex.Entry entry = null;
+                    boolean javaFile = attrs.isRegularFile() && ProjectIndex.isJavaFile(name);
+                    if ((attrs.isDirectory() || javaFile) && index.isIgnored(dir, name, attrs.isDirectory())) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (attrs.isDirectory()) {
+                        if (existing != null && existing.directory) {
+                            entry = existing;
+                        } else {
+                            Object key = loopKey(file, attrs);
+                            if (!isLoop(dir, key, ancestorsOnly)) {
+                                entry = index.newEntry(dir, file.toFile(), true, key);
+                            }
+                        }
+                    } else if (javaFile) {
+                        if (existing != null && !existing.directory) {
+                            entry = existing;
+                            if (existing.lastModified != attrs.lastModifiedTime().toMillis() || existing.size != attrs.size()) {
+                                rewritten.add(existing);
+                            }
+                        } else {
+                            entry = index.newEntry(dir, file.toFile(), false, null);
+                        }
+                        entry.size = attrs.size();
+                    }
+                    if (entry == null) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    // a reused directory keeps its old time so revalidation still notices it
+                    if (entry != existing || !entry.directory) {
+                        entry.lastModified = attrs.lastModifiedTime().toMillis();
+                    }
+                    kept.add(entry);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ignored) {
+            // unreadable directory: keep whatever was collected
+        }
+        ProjectIndex.Entry[] children = kept.toArray(new ProjectIndex.Entry[0]);
+        Arrays.sort(children, ProjectIndex.ENTRY_ORDER);
+        return children;
+    }
+
+    private final class ScanTask extends RecursiveAction {
+
+        private final ProjectIndex.Entry dir;
+        private final BooleanSupplier cancelled;
+        private final Consumer<ProjectIndex.Entry> listed;
+        private final boolean ancestorsOnly;
+
+        ScanTask(ProjectIndex.Entry dir, BooleanSupplier cancelled, Consumer<ProjectIndex.Entry> listed, boolean ancestorsOnly) {
+            this.dir = dir;
+            this.cancelled = cancelled;
+            this.listed = listed;
+            this.ancestorsOnly = ancestorsOnly;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            ProjectIndex.Entry[] children = list(dir, Collections.emptyMap(), Collections.emptySet(), ancestorsOnly);
+            index.setChildren(dir, children);
+            listed.accept(dir);
+            List<ScanTask> subtasks = new ArrayList<>();
+            for (ProjectIndex.Entry child : children) {
+                if (child.directory) {
+                    subtasks.add(new ScanTask(child, cancelled, listed, ancestorsOnly));
+                }
+            }
+            if (!subtasks.isEmpty()) {
+                invokeAll(subtasks);
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package javasourcequickview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable lookup structure behind "Go to file". Every {@code .java} file in a
+ * {@link ProjectIndex} is indexed by the trigrams of its lower-case simple name and of its
+ * camel-hump initials ({@code JavaSourceQuickView} gives {@code jsqv}), and both strings
+ * are kept sorted for prefix ranges. A query only scores the files those structures
+ * return; when they cannot fill the result list it falls back to a subsequence scan that
+ * skips names missing any of the query's characters.
+ */
+final class FileNameIndex {
+
+    static final FileNameIndex EMPTY = new FileNameIndex(new ProjectIndex.Entry[0]);
+
+    private static final int[] NO_POSTINGS = new int[0];
+    private static final int SUBSTRING_SCORE = 6000;
+
+    private final ProjectIndex.Entry[] files;
+    private final String[] names;
+    private final String[] humps;
+    private final long[] charMasks;
+    private final int[] byName;
+    private final int[] byHumps;
+    private final Map<Long, int[]> namePostings;
+    private final Map<Long, int[]> humpPostings;
+
+    private FileNameIndex(ProjectIndex.Entry[] files) {
+        this.files = files;
+        this.names = new String[files.length];
+        this.humps = new String[files.length];
+        this.charMasks = new long[files.length];
+        Map<Long, IntList> nameTrigrams = new HashMap<>();
+        Map<Long, IntList> humpTrigrams = new HashMap<>();
+        for (int i = 0; i < files.length; i++) {
+            String simple = files[i].name.substring(0, files[i].name.length() - ".java".length());
+            names[i] = simple.toLowerCase(Locale.ROOT);
+            humps[i] = camelHumps(simple);
+            charMasks[i] = charMask(names[i]);
+            addTrigrams(nameTrigrams, names[i], i);
+            addTrigrams(humpTrigrams, humps[i], i);
+        }
+        this.namePostings = freeze(nameTrigrams);
+        this.humpPostings = freeze(humpTrigrams);
+        this.byName = sortedOrder(names);
+        this.byHumps = sortedOrder(humps);
+    }
+
+    static FileNameIndex build(ProjectIndex index) {
+        List<ProjectIndex.Entry> javaFiles = new ArrayList<>();
+        collect(index.getRoot(), javaFiles);
+        return new FileNameIndex(javaFiles.toArray(new ProjectIndex.Entry[0]));
+    }
+
+    /** Returns at most {@code limit} files for {@code query}, best match first. */
+    List<Match> search(String query, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT).replace(" ", "");
+        if (q.endsWith(".java")) {
+            q = q.substring(0, q.length() - ".java".length());
+        }
+        if (q.isEmpty() || files.length == 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, (a, b) -> Integer.compare(a.score, b.score));
+        boolean[] seen = new boolean[files.length];
+        // Everything the indexes return outranks a scattered match, so the scan only runs when they fall short.
+        int hits = offerPrefixRange(byName, names, q, top, seen, limit)
+                + offerPrefixRange(byHumps, humps, q, top, seen, limit);
+        if (q.length() >= 3 && !(top.size() == limit && top.peek().score > SUBSTRING_SCORE)) {
+            hits += offer(intersect(namePostings, q), q, top, seen, limit);
+            hits += offer(intersect(humpPostings, q), q, top, seen, limit);
+        }
+        if (hits < limit) {
+            long mask = charMask(q);
+            for (int i = 0; i < files.length; i++) {
+                if (!seen[i] && (charMasks[i] & mask) == mask) {
+                    offer(i, q, top, limit);
+                }
+            }
+        }
+        List<Match> result = new ArrayList<>(top);
+        result.sort((a, b) -> {
+            int c = Integer.compare(b.score, a.score);
+            return c != 0 ? c : a.entry.name.compareToIgnoreCase(b.entry.name);
+        });
+        return result;
+    }
+
+    String relativeParent(ProjectIndex.Entry entry) {
+        StringBuilder sb = new StringBuilder();
+        for (ProjectIndex.Entry e = entry.parent; e != null && e.parent != null; e = e.parent) {
+            sb.insert(0, sb.length() > 0 ? e.name + "/" : e.name);
+        }
+        return sb.toString();
+    }
+
+    private int offerPrefixRange(int[] order, String[] keys, String q, PriorityQueue<Match> top, boolean[] seen, int limit) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[order[mid]].compareTo(q) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int end = lo;
+        while (end < order.length && keys[order[end]].startsWith(q)) {
+            end++;
+        }
+        return offer(Arrays.copyOfRange(order, lo, end), q, top, seen, limit);
+    }
+
+    private int offer(int[] candidates, String q, PriorityQueue<Match> top, boolean[] seen, int limit) {
+        int hits = 0;
+        for (int i : candidates) {
+            if (!seen[i]) {
+                seen[i] = true;
+                if (offer(i, q, top, limit)) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private boolean offer(int i, String q, PriorityQueue<Match> top, int limit) {
+        int score = score(names[i], humps[i], q);
+        if (score < 0) {
+            return false;
+        }
+        if (top.size() < limit) {
+            top.add(new Match(files[i], score));
+        } else if (score > top.peek().score) {
+            top.poll();
+            top.add(new Match(files[i], score));
+        }
+        return true;
+    }
+
+    // Exact > prefix > camel-hump prefix > substring > scattered subsequence; shorter names win ties.
+    static int score(String name, String humps, String q) {
+        int lengthPenalty = Math.min(name.length(), 99);
+        if (name.equals(q)) {
+            return 10000;
+        }
+        if (name.startsWith(q)) {
+            return 8000 - lengthPenalty;
+        }
+        if (humps.startsWith(q)) {
+            return 7000 - lengthPenalty;
+        }
+        int idx = name.indexOf(q);
+        if (idx >= 0) {
+            return SUBSTRING_SCORE - Math.min(idx, 99) * 10 - lengthPenalty;
+        }
+        int pos = 0;
+        int run = 0;
+        int bonus = 0;
+        for (int i = 0; i < q.length(); i++) {
+            int found = name.indexOf(q.charAt(i), pos);
+            if (found < 0) {
+                return -1;
+            }
+            run = found == pos && i > 0 ? run + 1 : 0;
+            bonus += run * 5;
+            pos = found + 1;
+        }
+        return 1000 + Math.min(bonus, 2000) - lengthPenalty;
+    }
+
+    static String camelHumps(String simpleName) {
+        StringBuilder sb = new StringBuilder();
+        boolean boundary = true;
+        for (int i = 0; i < simpleName.length(); i++) {
+            char c = simpleName.charAt(i);
+            if (c == '_' || c == '$') {
+                boundary = true;
+                continue;
+            }
+            if (boundary || Character.isUpperCase(c) || (Character.isDigit(c) && i > 0 && !Character.isDigit(simpleName.charAt(i - 1)))) {
+                sb.append(Character.toLowerCase(c));
+            }
+            boundary = false;
+        }
+        return sb.toString();
+    }
+
+    private static long charMask(String s) {
+        long mask = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                mask |= 1L << (c - 'a');
+            } else if (c >= '0' && c <= '9') {
+                mask |= 1L << (26 + c - '0');
+            } else {
+                mask |= 1L << (36 + c % 27);
+            }
+        }
+        return mask;
+    }
+
+    private static int[] sortedOrder(String[] keys) {
+        Integer[] boxed = new Integer[keys.length];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> keys[a].compareTo(keys[b]));
+        int[] order = new int[boxed.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = boxed[i];
+        }
+        return order;
+    }
+
+    private static void collect(ProjectIndex.Entry dir, List<ProjectIndex.Entry> out) {
+        for (ProjectIndex.Entry child : dir.getChildren()) {
+            if (child.directory) {
+                collect(child, out);
+            } else {
+                out.add(child);
+            }
+        }
+    }
+
+    private static long trigram(CharSequence s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static void addTrigrams(Map<Long, IntList> postings, String s, int id) {
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            IntList list = postings.computeIfAbsent(trigram(s, i), k -> new IntList());
+            if (list.size == 0 || list.values[list.size - 1] != id) {
+                list.add(id);
+            }
+        }
+    }
+
+    private static Map<Long, int[]> freeze(Map<Long, IntList> postings) {
+        Map<Long, int[]> frozen = new HashMap<>(postings.size() * 2);
+        for (Map.Entry<Long, IntList> e : postings.entrySet()) {
+            frozen.put(e.getKey(), Arrays.copyOf(e.getValue().values, e.getValue().size));
+        }
+        return frozen;
+    }
+
+    // Postings are ascending file ids, so the intersection is a linear merge starting from the rarest trigram.
+    private static int[] intersect(Map<Long, int[]> postings, String q) {
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            int[] list = postings.get(trigram(q, i));
+            if (list == null) {
+                return NO_POSTINGS;
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] acc = lists.get(0);
+        for (int l = 1; l < lists.size() && acc.length > 0; l++) {
+            int[] other = lists.get(l);
+            int[] merged = new int[acc.length];
+            int n = 0;
+            int j = 0;
+            for (int value : acc) {
+                while (j < other.length && other[j] < value) {
+                    j++;
+                }
+                if (j < other.length && other[j] == value) {
+                    merged[n++] = value;
+                }
+            }
+            acc = Arrays.copyOf(merged, n);
+        }
+        return acc;
+    }
+
+    static final class Match {
+
+        final ProjectIndex.Entry entry;
+        final int score;
+
+        Match(ProjectIndex.Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+
+    private static final class IntList {
+
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package javasourcequickview;
+
+import java.util.List;
+
+/**
+ * What the viewer needs to know about a source file without reading it again: its
+ * package and imports, its primary type, the types it extends or implements and its
+ * declared methods. Tied to the file's modification time and size so a stale outline is
+ * never used.
+ */
+final class FileOutline {
+
+    final long lastModified;
+    final long size;
+    final String packageName;
+    final List<String> imports;
+    final String primaryType;
+    final List<String> parentTypes;
+    final List<JavaSourceQuickView.MethodInfo> methods;
+
+    FileOutline(long lastModified, long size, String packageName, List<String> imports, String primaryType,
+            List<String> parentTypes, List<JavaSourceQuickView.MethodInfo> methods) {
+        this.lastModified = lastModified;
+        this.size = size;
+        this.packageName = packageName;
+        this.imports = imports;
+        this.primaryType = primaryType != null ? primaryType : "";
+        this.parentTypes = parentTypes;
+        this.methods = methods;
+    }
+
+    boolean matches(long lastModified, long size) {
+        return this.lastModified == lastModified && this.size == size;
+    }
+}
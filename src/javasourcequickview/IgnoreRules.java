@@ -0,0 +1,184 @@
+package javasourcequickview;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.prefs.Preferences;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The patterns of one {@code .gitignore} file, or of the default exclude list. Patterns
+ * are matched against paths relative to the directory that holds them; as in git, the
+ * last matching pattern decides and a {@code !} pattern takes a path back in.
+ */
+final class IgnoreRules {
+
+    static final IgnoreRules EMPTY = new IgnoreRules(Collections.emptyList());
+
+    private static final String PREF_EXCLUDES = "defaultExcludes";
+    private static final String EXCLUDES_PROPERTY = "javasourcequickview.excludes";
+    private static final List<String> BUILT_IN_EXCLUDES = Collections.unmodifiableList(Arrays.asList(
+            ".git/", ".svn/", ".hg/", ".idea/", ".gradle/", "build/", "dist/", "target/", "out/", "node_modules/"));
+
+    private final List<Rule> rules;
+
+    private IgnoreRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    static IgnoreRules parse(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            Rule rule = Rule.compile(line);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return rules.isEmpty() ? EMPTY : new IgnoreRules(rules);
+    }
+
+    /** Reads {@code dir/.gitignore}; a missing or unreadable file gives {@link #EMPTY}. */
+    static IgnoreRules load(File dir) {
+        File gitignore = new File(dir, ".gitignore");
+        if (!gitignore.isFile()) {
+            return EMPTY;
+        }
+        try {
+            return parse(Files.readAllLines(gitignore.toPath(), StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException ex) {
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Patterns applied below every project root before any {@code .gitignore}. Taken from
+     * the {@code javasourcequickview.excludes} system property (comma separated) when set,
+     * otherwise from the user's preferences.
+     */
+    static List<String> defaultExcludes() {
+        String value = System.getProperty(EXCLUDES_PROPERTY);
+        if (value == null) {
+            value = preferences().get(PREF_EXCLUDES, null);
+        }
+        return value != null ? split(value) : BUILT_IN_EXCLUDES;
+    }
+
+    static void setDefaultExcludes(String commaSeparated) {
+        preferences().put(PREF_EXCLUDES, String.join(",", split(commaSeparated)));
+    }
+
+    private static Preferences preferences() {
+        return Preferences.userNodeForPackage(IgnoreRules.class);
+    }
+
+    private static List<String> split(String value) {
+        List<String> patterns = new ArrayList<>();
+        for (String part : value.split(",")) {
+            if (!part.trim().isEmpty()) {
+                patterns.add(part.trim());
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Returns {@code TRUE} when the path is ignored, {@code FALSE} when a negated pattern
+     * keeps it, and {@code null} when no pattern here says anything about it.
+     */
+    Boolean match(String relativePath, boolean directory) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            Rule rule = rules.get(i);
+            if ((directory || !rule.directoryOnly) && rule.pattern.matcher(relativePath).matches()) {
+                return !rule.negated;
+            }
+        }
+        return null;
+    }
+
+    private static final class Rule {
+
+        final Pattern pattern;
+        final boolean negated;
+        final boolean directoryOnly;
+
+        Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+        }
+
+        static Rule compile(String line) {
+            String p = line;
+            int end = p.length();
+            while (end > 0 && p.charAt(end - 1) == ' ' && (end < 2 || p.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            p = p.substring(0, end);
+            if (p.isEmpty() || p.startsWith("#")) {
+                return null;
+            }
+            boolean negated = p.startsWith("!");
+            if (negated) {
+                p = p.substring(1);
+            }
+            boolean directoryOnly = p.endsWith("/");
+            while (p.endsWith("/")) {
+                p = p.substring(0, p.length() - 1);
+            }
+            // a slash anywhere but the end ties the pattern to the .gitignore's directory
+            boolean anchored = p.indexOf('/') >= 0;
+            if (p.startsWith("/")) {
+                p = p.substring(1);
+            }
+            if (p.isEmpty()) {
+                return null;
+            }
+            StringBuilder re = new StringBuilder(anchored ? "" : "(?:.*/)?");
+            int i = 0;
+            while (i < p.length()) {
+                char c = p.charAt(i);
+                if (p.startsWith("**/", i) && (i == 0 || p.charAt(i - 1) == '/')) {
+                    re.append("(?:.*/)?");
+                    i += 3;
+                } else if (p.startsWith("/**", i) && i + 3 == p.length()) {
+                    re.append("/.*");
+                    i += 3;
+                } else if (p.startsWith("**", i)) {
+                    re.append(".*");
+                    i += 2;
+                } else if (c == '*') {
+                    re.append("[^/]*");
+                    i++;
+                } else if (c == '?') {
+                    re.append("[^/]");
+                    i++;
+                } else if (c == '[' && p.indexOf(']', i + 2) > 0) {
+                    int close = p.indexOf(']', i + 2);
+                    String body = p.substring(i + 1, close);
+                    if (body.startsWith("!")) {
+                        body = "^" + body.substring(1);
+                    }
+                    re.append('[').append(body.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = close + 1;
+                } else if (c == '\\' && i + 1 < p.length()) {
+                    re.append(Pattern.quote(String.valueOf(p.charAt(i + 1))));
+                    i += 2;
+                } else {
+                    re.append(Pattern.quote(String.valueOf(c)));
+                    i++;
+                }
+            }
+            try {
+                return new Rule(Pattern.compile(re.toString()), negated, directoryOnly);
+            } catch (PatternSyntaxException ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package javasourcequickview;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.Timer;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Style;
+import javax.swing.text.StyledDocument;
+
+/**
+ * Applies a {@link JavaLexer} token array to a document a chunk at a time on the EDT.
+ * Each timer tick spends at most {@link #SLICE_NANOS} styling: the chunks under the
+ * viewport go first, then the rest in document order, so scrolling ahead simply moves
+ * the next slice to wherever the user is looking. When a fully styled copy of the document
+ * is on its way, only the chunks scrolled into view are styled until it replaces this one.
+ */
+final class IncrementalHighlighter implements ActionListener {
+
+    private static final int CHUNK_TOKENS = 256;
+    private static final long SLICE_NANOS = 8_000_000L;
+    private static final int TICK_MILLIS = 10;
+
+    private final JTextComponent pane;
+    private final StyledDocument doc;
+    private final int[] tokens;
+    private final Style[] styles;
+    private final boolean[] done;
+    private final boolean visibleOnly;
+    private final Timer timer;
+    private int remaining;
+    private int cursor;
+
+    /**
+     * @param styles      indexed by token kind; a null entry leaves the token unstyled
+     * @param visibleOnly leave chunks that have not been scrolled into view unstyled; the
+     *                    caller stops the highlighter once it swaps in a styled document
+     */
+    IncrementalHighlighter(JTextComponent pane, StyledDocument doc, int[] tokens, Style[] styles, boolean visibleOnly) {
+        this.pane = pane;
+        this.doc = doc;
+        this.tokens = tokens;
+        this.styles = styles;
+        this.visibleOnly = visibleOnly;
+        int chunks = (JavaLexer.count(tokens) + CHUNK_TOKENS - 1) / CHUNK_TOKENS;
+        this.done = new boolean[chunks];
+        this.remaining = chunks;
+        this.timer = new Timer(TICK_MILLIS, this);
+        this.timer.setRepeats(true);
+    }
+
+    /** Styles the first slice right away and schedules the rest. Call on the EDT. */
+    void start() {
+        actionPerformed(null);
+        if (remaining > 0) {
+            timer.start();
+        }
+    }
+
+    void stop() {
+        timer.stop();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        long deadline = System.nanoTime() + SLICE_NANOS;
+        while (remaining > 0 && System.nanoTime() < deadline) {
+            int chunk = nextChunk();
+            if (chunk < 0) {
+                return;
+            }
+            apply(chunk);
+        }
+        if (remaining == 0) {
+            timer.stop();
+        }
+    }
+
+    // The next chunk to style, or -1 when only visible ones are wanted and none is left.
+    private int nextChunk() {
+        Rectangle visible = pane.getVisibleRect();
+        if (!visible.isEmpty()) {
+            int from = chunkAt(pane.viewToModel(new Point(visible.x, visible.y)));
+            int to = chunkAt(pane.viewToModel(new Point(visible.x + visible.width, visible.y + visible.height)));
+            for (int c = Math.max(0, from); c <= to && c < done.length; c++) {
+                if (!done[c]) {
+                    return c;
+                }
+            }
+        }
+        if (visibleOnly) {
+            return -1;
+        }
+        while (done[cursor]) {
+            cursor = (cursor + 1) % done.length;
+        }
+        return cursor;
+    }
+
+    // Index of the chunk holding the last token that starts at or before offset.
+    private int chunkAt(int offset) {
+        int lo = 0;
+        int hi = JavaLexer.count(tokens) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (JavaLexer.start(tokens, mid) <= offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return Math.max(0, hi) / CHUNK_TOKENS;
+    }
+
+    private void apply(int chunk) {
+        int end = Math.min(JavaLexer.count(tokens), (chunk + 1) * CHUNK_TOKENS);
+        for (int t = chunk * CHUNK_TOKENS; t < end; t++) {
+            Style style = styles[JavaLexer.kind(tokens, t)];
+            if (style != null) {
+                doc.setCharacterAttributes(JavaLexer.start(tokens, t), JavaLexer.length(tokens, t), style, false);
+            }
+        }
+        done[chunk] = true;
+        remaining--;
+    }
+}
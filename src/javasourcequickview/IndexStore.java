@@ -0,0 +1,269 @@
+package javasourcequickview;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Binary snapshot of a {@link ProjectIndex} kept in the user cache directory, one file per
+ * project root. It holds the entry tree with modification times and sizes and the outline
+ * of every file that has been parsed. Loading reads it in one go; the caller is expected
+ * to revalidate the result against the disk. A snapshot taken with a different default
+ * exclude list is not used.
+ */
+final class IndexStore {
+
+    private static final Logger LOG = Logger.getLogger(IndexStore.class.getName());
+    private static final int MAGIC = 0x4a535156;
+    private static final int VERSION = 3;
+    private static final byte FLAG_DIRECTORY = 1;
+    private static final byte FLAG_OUTLINE = 2;
+
+    private IndexStore() {
+    }
+
+    static File locationFor(File root) {
+        String base = System.getenv("XDG_CACHE_HOME");
+        File cacheDir;
+        if (base != null && !base.isEmpty()) {
+            cacheDir = new File(base, "javasourcequickview");
+        } else if (System.getenv("LOCALAPPDATA") != null) {
+            cacheDir = new File(System.getenv("LOCALAPPDATA"), "JavaSourceQuickView");
+        } else {
+            cacheDir = new File(System.getProperty("user.home"), ".cache/javasourcequickview");
+        }
+        return new File(cacheDir, digest(root.getAbsolutePath()) + ".idx");
+    }
+
+    /**
+     * Rebuilds the stored tree under {@code index}'s root. Returns {@code false} when there
+     * is no usable snapshot, in which case the index is left untouched.
+     */
+    static boolean load(ProjectIndex index, Consumer<ProjectIndex.Entry> listed) {
+        File store = locationFor(index.getRoot().file);
+        if (!store.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(store.toPath(), StandardOpenOption.READ)) {
+            // copied to the heap: a live mapping would stop save() from replacing the file on Windows
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            while (buf.hasRemaining() && channel.read(buf) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+            buf.flip();
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                return false;
+            }
+            ProjectIndex.Entry root = index.getRoot();
+            if (!root.file.getAbsolutePath().equals(readString(buf))
+                    || !String.join(",", index.getExcludePatterns()).equals(readString(buf))) {
+                return false;
+            }
+            int count = buf.getInt();
+            ProjectIndex.Entry[] entries = new ProjectIndex.Entry[count];
+            List<List<ProjectIndex.Entry>> children = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int parent = buf.getInt();
+                byte flags = buf.get();
+                String name = readString(buf);
+                long lastModified = buf.getLong();
+                long size = buf.getLong();
+                ProjectIndex.Entry entry;
+                if (parent < 0) {
+                    entry = root;
+                } else {
+                    ProjectIndex.Entry p = entries[parent];
+                    entry = index.newEntry(p, new File(p.file, name), (flags & FLAG_DIRECTORY) != 0, null);
+                    children.get(parent).add(entry);
+                }
+                entry.lastModified = lastModified;
+                entry.size = size;
+                if ((flags & FLAG_OUTLINE) != 0) {
+                    entry.outline = readOutline(buf, lastModified, size);
+                }
+                entries[i] = entry;
+                children.add(entry.directory ? new ArrayList<>() : null);
+            }
+            for (int i = 0; i < count; i++) {
+                if (entries[i].directory) {
+                    index.setChildren(entries[i], children.get(i).toArray(new ProjectIndex.Entry[0]));
+                    listed.accept(entries[i]);
+                }
+            }
+            return true;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | NullPointerException ex) {
+            LOG.log(Level.INFO, "Ignoring unreadable index " + store, ex);
+            return false;
+        }
+    }
+
+    static void save(ProjectIndex index) {
+        ProjectIndex.Entry root = index.getRoot();
+        File store = locationFor(root.file);
+        File dir = store.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File tmp = new File(dir, store.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, root.file.getAbsolutePath());
+            writeString(out, String.join(",", index.getExcludePatterns()));
+
+            List<ProjectIndex.Entry> order = new ArrayList<>();
+            List<Integer> parents = new ArrayList<>();
+            Deque<Object[]> pending = new ArrayDeque<>();
+            pending.push(new Object[]{root, -1});
+            while (!pending.isEmpty()) {
+                Object[] item = pending.pop();
+                ProjectIndex.Entry entry = (ProjectIndex.Entry) item[0];
+                int self = order.size();
+                order.add(entry);
+                parents.add((Integer) item[1]);
+                ProjectIndex.Entry[] kids = entry.getChildren();
+                for (int i = kids.length - 1; i >= 0; i--) {
+                    pending.push(new Object[]{kids[i], self});
+                }
+            }
+
+            out.writeInt(order.size());
+            for (int i = 0; i < order.size(); i++) {
+                ProjectIndex.Entry entry = order.get(i);
+                FileOutline outline = entry.outline;
+                boolean withOutline = outline != null && outline.matches(entry.lastModified, entry.size);
+                out.writeInt(parents.get(i));
+                out.writeByte((entry.directory ? FLAG_DIRECTORY : 0) | (withOutline ? FLAG_OUTLINE : 0));
+                writeString(out, entry.name);
+                out.writeLong(entry.lastModified);
+                out.writeLong(entry.size);
+                if (withOutline) {
+                    writeOutline(out, outline);
+                }
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Cannot write index " + store, ex);
+            tmp.delete();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Cannot replace index " + store, ex);
+            tmp.delete();
+        }
+    }
+
+    private static void writeOutline(DataOutputStream out, FileOutline outline) throws IOException {
+        writeString(out, outline.packageName);
+        out.writeInt(outline.imports.size());
+        for (String name : outline.imports) {
+            writeString(out, name);
+        }
+        writeString(out, outline.primaryType);
+        out.writeInt(outline.parentTypes.size());
+        for (String parent : outline.parentTypes) {
+            writeString(out, parent);
+        }
+        out.writeInt(outline.methods.size());
+        for (JavaSourceQuickView.MethodInfo m : outline.methods) {
+            writeString(out, m.name);
+            writeString(out, m.returnType);
+            writeString(out, m.accessModifier);
+            writeString(out, m.modifiers);
+            writeString(out, m.throwsClause);
+            out.writeInt(m.params.size());
+            for (JavaSourceQuickView.ParamInfo p : m.params) {
+                writeString(out, p.type);
+                writeString(out, p.name);
+            }
+            out.writeInt(m.startOffset);
+            out.writeInt(m.endOffset);
+            out.writeInt(m.lineNumber);
+            writeString(out, m.ownerType);
+            out.writeBoolean(m.constructor);
+        }
+    }
+
+    private static FileOutline readOutline(ByteBuffer buf, long lastModified, long size) {
+        String packageName = readString(buf);
+        int importCount = buf.getInt();
+        List<String> imports = new ArrayList<>(importCount);
+        for (int i = 0; i < importCount; i++) {
+            imports.add(readString(buf));
+        }
+        String primaryType = readString(buf);
+        int parentCount = buf.getInt();
+        List<String> parents = new ArrayList<>(parentCount);
+        for (int i = 0; i < parentCount; i++) {
+            parents.add(readString(buf));
+        }
+        int methodCount = buf.getInt();
+        List<JavaSourceQuickView.MethodInfo> methods = new ArrayList<>(methodCount);
+        for (int i = 0; i < methodCount; i++) {
+            String name = readString(buf);
+            String returnType = readString(buf);
+            String access = readString(buf);
+            String modifiers = readString(buf);
+            String throwsClause = readString(buf);
+            int paramCount = buf.getInt();
+            List<JavaSourceQuickView.ParamInfo> params = new ArrayList<>(paramCount);
+            for (int p = 0; p < paramCount; p++) {
+                params.add(new JavaSourceQuickView.ParamInfo(readString(buf), readString(buf)));
+            }
+            int start = buf.getInt();
+            int end = buf.getInt();
+            int line = buf.getInt();
+            String owner = readString(buf);
+            boolean constructor = buf.get() != 0;
+            methods.add(new JavaSourceQuickView.MethodInfo(name, returnType, access, modifiers, throwsClause,
+                    params, start, end, line, owner, constructor, false));
+        }
+        return new FileOutline(lastModified, size, packageName, Collections.unmodifiableList(imports), primaryType,
+                Collections.unmodifiableList(parents), Collections.unmodifiableList(methods));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String digest(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                sb.append(String.format("%02x", hash[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return Integer.toHexString(text.hashCode());
+        }
+    }
+}
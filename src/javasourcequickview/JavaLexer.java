@@ -0,0 +1,243 @@
+package javasourcequickview;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hand-written Java scanner. One pass over the text produces a flat {@code int[]} of
+ * {@code (start, length, kind)} triples, whitespace excluded. Identifiers are then
+ * refined from their neighbours: a name after {@code class}, {@code interface} or
+ * {@code enum} is a type name, a name before {@code (} is a method, and a name between
+ * a type and {@code =} or {@code ;} is a field.
+ */
+final class JavaLexer {
+
+    static final int COMMENT = 0;
+    static final int STRING = 1;
+    static final int NUMBER = 2;
+    static final int ANNOTATION = 3;
+    static final int KEYWORD = 4;
+    static final int CLASS_NAME = 5;
+    static final int METHOD = 6;
+    static final int FIELD = 7;
+    static final int IDENTIFIER = 8;
+    static final int OPERATOR = 9;
+
+    static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+            "default", "double", "do", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if", "implements",
+            "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private", "protected", "public", "return",
+            "short", "static", "strictfp", "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while"
+    ));
+
+    static final Set<String> PRIMITIVES = new HashSet<>(Arrays.asList(
+            "boolean", "byte", "char", "double", "float", "int", "long", "short"));
+
+    private final CharSequence text;
+    private int[] tokens = new int[256];
+    private int size;
+
+    private JavaLexer(CharSequence text) {
+        this.text = text;
+    }
+
+    static int[] tokenize(CharSequence text) {
+        JavaLexer lexer = new JavaLexer(text);
+        lexer.scan();
+        lexer.classifyIdentifiers();
+        return Arrays.copyOf(lexer.tokens, lexer.size);
+    }
+
+    static int count(int[] tokens) {
+        return tokens.length / 3;
+    }
+
+    static int start(int[] tokens, int i) {
+        return tokens[i * 3];
+    }
+
+    static int length(int[] tokens, int i) {
+        return tokens[i * 3 + 1];
+    }
+
+    static int kind(int[] tokens, int i) {
+        return tokens[i * 3 + 2];
+    }
+
+    private void scan() {
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && text.charAt(i + 1) == '/') {
+                while (i < n && text.charAt(i) != '\n' && text.charAt(i) != '\r') {
+                    i++;
+                }
+                add(start, i, COMMENT);
+            } else if (c == '/' && i + 1 < n && text.charAt(i + 1) == '*') {
+                i += 2;
+                while (i < n && !(text.charAt(i) == '*' && i + 1 < n && text.charAt(i + 1) == '/')) {
+                    i++;
+                }
+                i = Math.min(n, i + 2);
+                add(start, i, COMMENT);
+            } else if (c == '"' && i + 2 < n && text.charAt(i + 1) == '"' && text.charAt(i + 2) == '"') {
+                i = skipTextBlock(i + 3);
+                add(start, i, STRING);
+            } else if (c == '"' || c == '\'') {
+                i = skipQuoted(i + 1, c);
+                add(start, i, STRING);
+            } else if (isDigit(c) || (c == '.' && i + 1 < n && isDigit(text.charAt(i + 1)))) {
+                i = skipNumber(i);
+                add(start, i, NUMBER);
+            } else if (c == '@' && i + 1 < n && Character.isJavaIdentifierStart(text.charAt(i + 1))) {
+                i = skipIdentifier(i + 1);
+                add(start, i, ANNOTATION);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                i = skipIdentifier(i);
+                add(start, i, KEYWORDS.contains(text.subSequence(start, i).toString()) ? KEYWORD : IDENTIFIER);
+            } else {
+                i++;
+                add(start, i, OPERATOR);
+            }
+        }
+    }
+
+    // Unterminated literals stop at the end of the line so one stray quote cannot colour the rest of the file.
+    private int skipQuoted(int i, char quote) {
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    private int skipTextBlock(int i) {
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"' && i + 2 < n && text.charAt(i + 1) == '"' && text.charAt(i + 2) == '"') {
+                return i + 3;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    private int skipNumber(int i) {
+        int n = text.length();
+        boolean hex = text.charAt(i) == '0' && i + 1 < n && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X');
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '.') {
+                i++;
+            } else if ((c == '+' || c == '-') && !hex && (text.charAt(i - 1) == 'e' || text.charAt(i - 1) == 'E')) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private int skipIdentifier(int i) {
+        int n = text.length();
+        while (i < n && Character.isJavaIdentifierPart(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void add(int start, int end, int kind) {
+        if (size + 3 > tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        tokens[size++] = start;
+        tokens[size++] = end - start;
+        tokens[size++] = kind;
+    }
+
+    private void classifyIdentifiers() {
+        int count = size / 3;
+        int prev = -1;
+        for (int t = 0; t < count; t++) {
+            int kind = tokens[t * 3 + 2];
+            if (kind == COMMENT) {
+                continue;
+            }
+            if (kind == IDENTIFIER) {
+                int next = nextCode(t + 1, count);
+                if (prev >= 0 && isKeyword(prev, "class", "interface", "enum")) {
+                    tokens[t * 3 + 2] = CLASS_NAME;
+                } else if (next >= 0 && isOperator(next, '(')) {
+                    tokens[t * 3 + 2] = METHOD;
+                } else if (next >= 0 && (isOperator(next, '=') || isOperator(next, ';')) && prev >= 0 && endsType(prev)
+                        && !(isOperator(next, '=') && next + 1 < count && isOperator(next + 1, '='))) {
+                    tokens[t * 3 + 2] = FIELD;
+                }
+            }
+            prev = t;
+        }
+    }
+
+    private int nextCode(int t, int count) {
+        while (t < count && tokens[t * 3 + 2] == COMMENT) {
+            t++;
+        }
+        return t < count ? t : -1;
+    }
+
+    private boolean endsType(int t) {
+        int kind = tokens[t * 3 + 2];
+        if (kind == IDENTIFIER || kind == CLASS_NAME) {
+            return true;
+        }
+        if (kind == KEYWORD) {
+            return PRIMITIVES.contains(textOf(t));
+        }
+        return isOperator(t, '>') || isOperator(t, ']');
+    }
+
+    private boolean isOperator(int t, char c) {
+        return tokens[t * 3 + 2] == OPERATOR && text.charAt(tokens[t * 3]) == c;
+    }
+
+    private boolean isKeyword(int t, String... words) {
+        if (tokens[t * 3 + 2] != KEYWORD) {
+            return false;
+        }
+        String word = textOf(t);
+        for (String w : words) {
+            if (w.equals(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String textOf(int t) {
+        return text.subSequence(tokens[t * 3], tokens[t * 3] + tokens[t * 3 + 1]).toString();
+    }
+}
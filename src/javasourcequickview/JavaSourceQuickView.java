@@ -15,6 +15,7 @@ import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.HeadlessException;
 import java.awt.Insets;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.Toolkit;
@@ -26,11 +27,20 @@ import java.nio.charset.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
 import java.util.regex.*;
 
 public class JavaSourceQuickView extends JFrame {
 
+    private static final Logger LOG = Logger.getLogger(JavaSourceQuickView.class.getName());
     private static final String APP_TITLE = "Java Source Quick View";
     private static final double UI_SCALE = determineUiScale();
     private static final int BASE_FONT_SIZE = 26;
@@ -65,6 +75,23 @@ public class JavaSourceQuickView extends JFrame {
     private static final String GENERIC_SUMMARY = "Thực hiện nghiệp vụ do bạn định nghĩa trong thân phương thức.";
     private static final Map<String, Map<String, String>> BUILTIN_DOCS = new HashMap<>();
     private static final Map<String, String> OWNER_ALIASES = new HashMap<>();
+    private static final Preferences PREFS = Preferences.userNodeForPackage(JavaSourceQuickView.class);
+    private static final String PREF_LAST_FOLDER = "lastFolder";
+    private static final String PREF_SHOW_OUTLINE = "showOutline";
+    // Files at least this large always open in the lightweight token-painted viewer.
+    private static final long TOKEN_PAINTER_MIN_BYTES = 2L * 1024 * 1024;
+    private static final long ANALYSIS_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final long WATCHER_STOP_MILLIS = 2000;
+    private static final long EXIT_SAVE_MILLIS = 5000;
+    // Insight scans text around the caret; past this column (minified code, data literals) it is skipped.
+    private static final int INSIGHT_MAX_COLUMN = 2000;
+    // Reads and parses the files along inheritance chains; parents of one type load side by side.
+    private static final ExecutorService INHERITANCE_POOL = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), r -> {
+                Thread t = new Thread(r, "inheritance-resolver");
+                t.setDaemon(true);
+                return t;
+            });
 
     static {
         // Owner aliases
@@ -697,10 +724,18 @@ public class JavaSourceQuickView extends JFrame {
     private JTextField searchField;
     private JButton searchNextBtn;
     private JButton openDirBtn;
-    private File currentRoot;
-    private SwingWorker<DefaultMutableTreeNode, Void> treeLoader;
-    private final Map<String, File> classFileCache = new HashMap<>();
-    private final Map<String, List<MethodInfo>> inheritanceCache = new HashMap<>();
+    private volatile File currentRoot;
+    private SwingWorker<ProjectIndex.Changes, ProjectIndex.Entry> treeLoader;
+    private volatile ProjectIndex projectIndex;
+    private ProjectIndex.View treeView;
+    // One pending or finished link per declaring file's path, and the files whose links name each simple type.
+    // Filled from the resolver pool and evicted on the EDT.
+    private final Map<String, CompletableFuture<TypeLink>> inheritanceCache = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> inheritanceDependents = new ConcurrentHashMap<>();
+    private ProjectWatcher projectWatcher;
+    private volatile FileNameIndex fileNameIndex = FileNameIndex.EMPTY;
+    private boolean tokenPainterMode;
+    private final AnalysisCache analysisCache = new AnalysisCache(ANALYSIS_CACHE_BYTES);
 
     public JavaSourceQuickView() {
         super(APP_TITLE);
@@ -709,6 +744,31 @@ public class JavaSourceQuickView extends JFrame {
         setLocationRelativeTo(null);
         getContentPane().setBackground(WINDOW_BACKGROUND);
         initUI();
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                Thread saver = saveIndexInBackground();
+                if (saver != null) {
+                    try {
+                        saver.join(EXIT_SAVE_MILLIS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        restoreLastFolder();
+    }
+
+    private void restoreLastFolder() {
+        String last = PREFS.get(PREF_LAST_FOLDER, null);
+        if (last == null) {
+            return;
+        }
+        File dir = new File(last);
+        if (dir.isDirectory()) {
+            openFolder(dir);
+        }
     }
 
     private void initUI() {
@@ -783,6 +843,19 @@ public class JavaSourceQuickView extends JFrame {
         renderer.setBackgroundSelectionColor(TREE_SELECTION_BG);
         renderer.setTextSelectionColor(TREE_SELECTION_TEXT);
         renderer.setBorderSelectionColor(TREE_SELECTION_BORDER);
+        fileTree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                Object node = event.getPath().getLastPathComponent();
+                if (node instanceof DirectoryNode) {
+                    ensureLoaded((DirectoryNode) node);
+                }
+            }
+
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+            }
+        });
         fileTree.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
@@ -816,6 +889,26 @@ public class JavaSourceQuickView extends JFrame {
         tabbedPane.setFont(UI_FONT);
         tabbedPane.setBackground(SURFACE_COLOR);
         tabbedPane.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
+        tabbedPane.addContainerListener(new ContainerAdapter() {
+            @Override
+            public void componentRemoved(ContainerEvent e) {
+                // closed or replaced before it finished loading
+                if (e.getChild() instanceof JPanel) {
+                    Object loader = ((JPanel) e.getChild()).getClientProperty("loader");
+                    if (loader instanceof ViewerLoader) {
+                        ((ViewerLoader) loader).cancel(true);
+                    }
+                    Object highlighter = ((JPanel) e.getChild()).getClientProperty("highlighter");
+                    if (highlighter instanceof IncrementalHighlighter) {
+                        ((IncrementalHighlighter) highlighter).stop();
+                    }
+                    LargeFileViewer large = largeViewerOf(e.getChild());
+                    if (large != null) {
+                        large.close();
+                    }
+                }
+            }
+        });
 
         JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, treeScroll, tabbedPane);
         split.setDividerLocation(scale(300));
@@ -834,13 +927,67 @@ public class JavaSourceQuickView extends JFrame {
         JMenuItem openItem = new JMenuItem("Open folder...");
         openItem.setFont(UI_FONT);
         openItem.addActionListener(e -> pickFolder());
+        JMenuItem goToFileItem = new JMenuItem("Go to file...");
+        goToFileItem.setFont(UI_FONT);
+        goToFileItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.CTRL_DOWN_MASK));
+        goToFileItem.addActionListener(e -> showGoToFile());
         JMenuItem exitItem = new JMenuItem("Exit");
         exitItem.setFont(UI_FONT);
         exitItem.addActionListener(e -> System.exit(0));
         fileMenu.add(openItem);
+        fileMenu.add(goToFileItem);
+        JMenuItem goToLineItem = new JMenuItem("Go to line...");
+        goToLineItem.setFont(UI_FONT);
+        goToLineItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G, InputEvent.CTRL_DOWN_MASK));
+        goToLineItem.addActionListener(e -> goToLine());
+        fileMenu.add(goToLineItem);
+        JMenuItem excludesItem = new JMenuItem("Excluded folders...");
+        excludesItem.setFont(UI_FONT);
+        excludesItem.addActionListener(e -> editDefaultExcludes());
+        fileMenu.add(excludesItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         mb.add(fileMenu);
+        JMenu viewMenu = new JMenu("View");
+        viewMenu.setFont(UI_FONT);
+        JCheckBoxMenuItem tokenPainterItem = new JCheckBoxMenuItem("Lightweight highlighting");
+        tokenPainterItem.setFont(UI_FONT);
+        tokenPainterItem.setToolTipText("Paint colours from the token list instead of styled text (uses far less memory)");
+        tokenPainterItem.addActionListener(e -> {
+            tokenPainterMode = tokenPainterItem.isSelected();
+            for (int i = 0; i < tabbedPane.getTabCount(); i++) {
+                Object file = ((JComponent) tabbedPane.getComponentAt(i)).getClientProperty("file");
+                if (file instanceof File) {
+                    reloadOpenTab((File) file);
+                }
+            }
+        });
+        viewMenu.add(tokenPainterItem);
+        JCheckBoxMenuItem outlineItem = new JCheckBoxMenuItem("Outline", PREFS.getBoolean(PREF_SHOW_OUTLINE, true));
+        outlineItem.setFont(UI_FONT);
+        outlineItem.addActionListener(e -> {
+            PREFS.putBoolean(PREF_SHOW_OUTLINE, outlineItem.isSelected());
+            for (int i = 0; i < tabbedPane.getTabCount(); i++) {
+                Object outlineSplit = ((JComponent) tabbedPane.getComponentAt(i)).getClientProperty("outlineSplit");
+                if (outlineSplit instanceof JSplitPane) {
+                    showOutline((JSplitPane) outlineSplit, outlineItem.isSelected());
+                }
+            }
+        });
+        viewMenu.add(outlineItem);
+        JMenuItem cacheStatsItem = new JMenuItem("Analysis cache statistics...");
+        cacheStatsItem.setFont(UI_FONT);
+        cacheStatsItem.addActionListener(e -> JOptionPane.showMessageDialog(this,
+                String.format("Hits: %d%nMisses: %d%nEntries: %d%nSize: %.1f / %.0f MB",
+                        analysisCache.hits(), analysisCache.misses(), analysisCache.size(),
+                        analysisCache.usedBytes() / (1024.0 * 1024), analysisCache.budgetBytes() / (1024.0 * 1024)),
+                "Analysis cache", JOptionPane.INFORMATION_MESSAGE));
+        viewMenu.add(cacheStatsItem);
+        JMenuItem largeFileItem = new JMenuItem("Large file threshold...");
+        largeFileItem.setFont(UI_FONT);
+        largeFileItem.addActionListener(e -> editLargeFileThreshold());
+        viewMenu.add(largeFileItem);
+        mb.add(viewMenu);
         setJMenuBar(mb);
     }
 
@@ -849,33 +996,271 @@ public class JavaSourceQuickView extends JFrame {
         chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
         int ret = chooser.showOpenDialog(this);
         if (ret == JFileChooser.APPROVE_OPTION) {
-            currentRoot = chooser.getSelectedFile();
-            classFileCache.clear();
-            inheritanceCache.clear();
-            loadTreeFromDirectory(currentRoot);
+            openFolder(chooser.getSelectedFile());
         }
     }
 
-    private void refreshTree() {
+    private void editDefaultExcludes() {
+        Object value = JOptionPane.showInputDialog(this,
+                "Patterns skipped in every project, comma separated (.gitignore syntax):",
+                "Excluded folders", JOptionPane.PLAIN_MESSAGE, null, null,
+                String.join(", ", IgnoreRules.defaultExcludes()));
+        if (value == null) {
+            return;
+        }
+        IgnoreRules.setDefaultExcludes(value.toString());
         if (currentRoot != null) {
-            loadTreeFromDirectory(currentRoot);
+            openFolder(currentRoot);
+        }
+    }
+
+    private void editLargeFileThreshold() {
+        Object value = JOptionPane.showInputDialog(this,
+                "Files of at least this many MB open in the line-by-line viewer:",
+                "Large file threshold", JOptionPane.PLAIN_MESSAGE, null, null,
+                String.valueOf(LargeFileViewer.thresholdBytes() / (1024 * 1024)));
+        if (value == null) {
+            return;
+        }
+        try {
+            LargeFileViewer.setThresholdMegabytes(Integer.parseInt(value.toString().trim()));
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Not a number: " + value, "Large file threshold", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    private void goToLine() {
+        Component comp = tabbedPane.getSelectedComponent();
+        LargeFileViewer large = largeViewerOf(comp);
+        JTextComponent tp = viewerTextOf(comp);
+        if (large == null && tp == null) {
+            return;
+        }
+        // the analysed text's line index once there is one, the document's line elements until then
+        Object index = large == null ? ((JComponent) comp).getClientProperty("lines") : null;
+        LineIndex lineIndex = index instanceof LineIndex ? (LineIndex) index : null;
+        Element root = tp != null ? tp.getDocument().getDefaultRootElement() : null;
+        int lines = large != null ? large.getLineCount() : lineIndex != null ? lineIndex.lineCount() : root.getElementCount();
+        Object value = JOptionPane.showInputDialog(this, "Line number (1-" + lines + "):", "Go to line", JOptionPane.PLAIN_MESSAGE);
+        if (value == null) {
+            return;
+        }
+        int line;
+        try {
+            line = Integer.parseInt(value.toString().trim()) - 1;
+        } catch (NumberFormatException ex) {
+            return;
+        }
+        if (large != null) {
+            large.goToLine(line);
+            large.requestFocusInWindow();
+            return;
+        }
+        revealOffset(tp, lineIndex != null ? lineIndex.lineStart(line)
+                : root.getElement(Math.max(0, Math.min(line, root.getElementCount() - 1))).getStartOffset(), true);
+    }
+
+    // Moves the caret to offset and scrolls it to about the middle of the view.
+    private static void revealOffset(JTextComponent tp, int offset, boolean focus) {
+        if (focus) {
+            tp.requestFocusInWindow();
+        }
+        tp.setCaretPosition(offset);
+        try {
+            Rectangle r = tp.modelToView(offset);
+            if (r != null) {
+                JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, tp);
+                int margin = viewport != null ? viewport.getHeight() / 3 : 0;
+                tp.scrollRectToVisible(new Rectangle(r.x, Math.max(0, r.y - margin), 1, r.height + 2 * margin));
+            }
+        } catch (BadLocationException ignored) {
+        }
+    }
+
+    private void showGoToFile() {
+        JDialog dialog = new JDialog(this, "Go to file", false);
+        JTextField queryField = new JTextField(40);
+        styleTextField(queryField);
+        DefaultListModel<FileNameIndex.Match> model = new DefaultListModel<>();
+        JList<FileNameIndex.Match> results = new JList<>(model);
+        results.setFont(UI_FONT);
+        results.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        results.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                FileNameIndex.Match match = (FileNameIndex.Match) value;
+                String text = "<html>" + htmlEscape(match.entry.name)
+                        + " <span style='color:#" + Integer.toHexString(TEXT_MUTED.getRGB() & 0xffffff) + "'>"
+                        + htmlEscape(fileNameIndex.relativeParent(match.entry)) + "</span></html>";
+                super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+                setBorder(new EmptyBorder(scale(3), scale(8), scale(3), scale(8)));
+                return this;
+            }
+        });
+
+        Runnable update = () -> {
+            model.clear();
+            for (FileNameIndex.Match match : fileNameIndex.search(queryField.getText(), 50)) {
+                model.addElement(match);
+            }
+            if (!model.isEmpty()) {
+                results.setSelectedIndex(0);
+            }
+        };
+        Runnable open = () -> {
+            FileNameIndex.Match match = results.getSelectedValue();
+            if (match != null) {
+                dialog.dispose();
+                openFileInTab(match.entry.file);
+            }
+        };
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                update.run();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                update.run();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                update.run();
+            }
+        });
+        queryField.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int size = model.getSize();
+                if (e.getKeyCode() == KeyEvent.VK_DOWN && size > 0) {
+                    results.setSelectedIndex(Math.min(results.getSelectedIndex() + 1, size - 1));
+                } else if (e.getKeyCode() == KeyEvent.VK_UP && size > 0) {
+                    results.setSelectedIndex(Math.max(results.getSelectedIndex() - 1, 0));
+                } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    dialog.dispose();
+                } else {
+                    return;
+                }
+                results.ensureIndexIsVisible(results.getSelectedIndex());
+                e.consume();
+            }
+        });
+        queryField.addActionListener(e -> open.run());
+        results.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    open.run();
+                }
+            }
+        });
+
+        JPanel content = new JPanel(new BorderLayout(0, scale(8)));
+        content.setBackground(TOOLBAR_BACKGROUND);
+        content.setBorder(new EmptyBorder(scale(10), scale(10), scale(10), scale(10)));
+        content.add(queryField, BorderLayout.NORTH);
+        JScrollPane scroll = new JScrollPane(results);
+        scroll.setPreferredSize(new Dimension(scale(560), scale(360)));
+        content.add(scroll, BorderLayout.CENTER);
+        dialog.setContentPane(content);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        queryField.requestFocusInWindow();
+    }
+
+    private void openFolder(File dir) {
+        saveIndexInBackground();
+        currentRoot = dir;
+        PREFS.put(PREF_LAST_FOLDER, dir.getAbsolutePath());
+        inheritanceCache.clear();
+        inheritanceDependents.clear();
+        loadTreeFromDirectory(currentRoot);
+    }
+
+    // Stops the watcher first so no entry changes during the walk, then writes the snapshot off the EDT.
+    private Thread saveIndexInBackground() {
+        ProjectIndex index = projectIndex;
+        ProjectWatcher watcher = projectWatcher;
+        projectWatcher = null;
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (index == null) {
+            return null;
+        }
+        Thread saver = new Thread(() -> {
+            try {
+                if (watcher != null) {
+                    watcher.awaitClosed(WATCHER_STOP_MILLIS);
+                }
+            } catch (InterruptedException ex) {
+                return;
+            }
+            IndexStore.save(index);
+        }, "index-save");
+        saver.start();
+        return saver;
+    }
+
+    private void refreshTree() {
+        if (projectIndex != null) {
+            applyTreeFilter();
+        }
+    }
+
+    private String currentFilter() {
+        return filterField.getText().trim().toLowerCase(Locale.ROOT);
+    }
+
     private void loadTreeFromDirectory(File root) {
         if (treeLoader != null && !treeLoader.isDone()) {
             treeLoader.cancel(true);
         }
+        if (projectWatcher != null) {
+            projectWatcher.close();
+            projectWatcher = null;
+        }
+
+        ProjectIndex index = ProjectIndex.create(root);
+        projectIndex = index;
+        fileNameIndex = FileNameIndex.EMPTY;
+        treeView = index.filter(currentFilter());
+        DirectoryNode rootNode = (DirectoryNode) createTreeNode(index.getRoot());
+        treeModel.setRoot(rootNode);
+        ensureLoaded(rootNode);
+        fileTree.expandPath(new TreePath(rootNode));
 
-        DefaultMutableTreeNode loadingNode = new DefaultMutableTreeNode("Loading...");
-        treeModel.setRoot(loadingNode);
-        treeModel.reload();
+        // Directories are published as soon as they are listed so the tree fills in while the scan runs.
+        // A stored snapshot is shown first and then checked against the disk.
+        treeLoader = new SwingWorker<ProjectIndex.Changes, ProjectIndex.Entry>() {
+            private FileNameIndex nameIndex;
 
-        treeLoader = new SwingWorker<DefaultMutableTreeNode, Void>() {
             @Override
-            protected DefaultMutableTreeNode doInBackground() {
-                String filter = filterField.getText().trim().toLowerCase(Locale.ROOT);
-                return buildTreeModel(root, filter, this, true);
+            protected ProjectIndex.Changes doInBackground() {
+                ProjectIndex.Changes changes;
+                if (IndexStore.load(index, dir -> publish(dir))) {
+                    index.markComplete();
+                    changes = index.revalidate(this::isCancelled, dir -> publish(dir));
+                } else {
+                    index.scan(this::isCancelled, dir -> publish(dir));
+                    index.markComplete();
+                    changes = new ProjectIndex.Changes();
+                }
+                nameIndex = FileNameIndex.build(index);
+                IndexStore.save(index);
+                return changes;
+            }
+
+            @Override
+            protected void process(List<ProjectIndex.Entry> listedDirs) {
+                if (isCancelled() || projectIndex != index) {
+                    return;
+                }
+                for (ProjectIndex.Entry dir : listedDirs) {
+                    treeView.include(dir);
+                }
+                syncTreeNode(rootNode, index.getRoot(), treeView);
             }
 
             @Override
@@ -884,10 +1269,13 @@ public class JavaSourceQuickView extends JFrame {
                     if (isCancelled()) {
                         return;
                     }
-                    DefaultMutableTreeNode newRoot = get();
-                    treeModel.setRoot(newRoot);
-                    treeModel.reload();
-                    expandAllRows();
+                    ProjectIndex.Changes changes = get();
+                    fileNameIndex = nameIndex;
+                    if (!changes.isEmpty()) {
+                        applyProjectChanges(index, changes);
+                    }
+                    revealActiveFile();
+                    startWatcher(index);
                 } catch (CancellationException ignored) {
                     // another refresh has taken over
                 } catch (ExecutionException ex) {
@@ -907,96 +1295,217 @@ public class JavaSourceQuickView extends JFrame {
         treeLoader.execute();
     }
 
-    private DefaultMutableTreeNode buildTreeModel(File directory, String filter, SwingWorker<?, ?> worker, boolean isRoot) {
-        if (worker.isCancelled()) {
-            throw new CancellationException();
+    private void startWatcher(ProjectIndex index) {
+        try {
+            ProjectWatcher watcher = new ProjectWatcher(index, changes -> {
+                // rebuilt on the watcher thread, which is the only one mutating the index now
+                FileNameIndex names = changes.addedFiles.isEmpty() && changes.removedFiles.isEmpty()
+                        ? null : FileNameIndex.build(index);
+                SwingUtilities.invokeLater(() -> {
+                    if (names != null && projectIndex == index) {
+                        fileNameIndex = names;
+                    }
+                    applyProjectChanges(index, changes);
+                });
+            });
+            projectWatcher = watcher;
+            watcher.start();
+        } catch (IOException ex) {
+            // live sync is optional; the folder can still be reopened by hand
+        }
+    }
+
+    private void applyProjectChanges(ProjectIndex index, ProjectIndex.Changes changes) {
+        if (projectIndex != index) {
+            return;
+        }
+        treeView = null;
+        applyTreeFilter();
+
+        List<File> touched = new ArrayList<>(changes.addedFiles);
+        touched.addAll(changes.removedFiles);
+        touched.addAll(changes.modifiedFiles);
+        evictTypeCaches(touched);
+        for (File file : changes.modifiedFiles) {
+            reloadOpenTab(file);
+        }
+    }
+
+    // Drops the links of the changed files and of every file naming one of their types, whose parents
+    // may now resolve elsewhere. Chains are assembled from links on each request, so nothing else is stale.
+    private void evictTypeCaches(Collection<File> files) {
+        for (File file : files) {
+            inheritanceCache.remove(file.getPath());
+            Set<String> dependents = inheritanceDependents.remove(file.getName().replaceFirst("\\.java$", ""));
+            if (dependents != null) {
+                for (String path : dependents) {
+                    inheritanceCache.remove(path);
+                }
+            }
+        }
+    }
+
+    private int findTabFor(File file) {
+        for (int i = 0; i < tabbedPane.getTabCount(); i++) {
+            Component c = tabbedPane.getComponentAt(i);
+            if (c instanceof JPanel && file.equals(((JPanel) c).getClientProperty("file"))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void reloadOpenTab(File file) {
+        int idx = findTabFor(file);
+        if (idx < 0) {
+            return;
         }
+        JTextComponent oldText = viewerTextOf(tabbedPane.getComponentAt(idx));
+        int caret = oldText != null ? oldText.getCaretPosition() : 0;
+        // the old panel stays until the new text is ready
+        makeViewerPanel(file, caret);
+    }
 
-        DefaultMutableTreeNode node = new DefaultMutableTreeNode(new FileTreeNode(directory));
-        File[] entries = directory.listFiles();
-        if (entries == null) {
-            return node;
+    private void applyTreeFilter() {
+        String filter = currentFilter();
+        if (treeView != null && treeView.filter.equals(filter)) {
+            return;
         }
+        treeView = projectIndex.filter(filter);
+        syncTreeNode((DefaultMutableTreeNode) treeModel.getRoot(), projectIndex.getRoot(), treeView);
+    }
 
-        Arrays.sort(entries, (a, b) -> {
-            if (a.isDirectory() && !b.isDirectory()) {
-                return -1;
+    private DefaultMutableTreeNode createTreeNode(ProjectIndex.Entry entry) {
+        FileTreeNode userObject = new FileTreeNode(entry);
+        return entry.directory ? new DirectoryNode(userObject) : new DefaultMutableTreeNode(userObject, false);
+    }
+
+    // Children are only materialized when a directory is about to be expanded.
+    private void ensureLoaded(DirectoryNode node) {
+        if (node.loaded || treeView == null) {
+            return;
+        }
+        ProjectIndex.Entry dir = entryOf(node);
+        List<Integer> insertedIdx = new ArrayList<>();
+        for (ProjectIndex.Entry child : dir.getChildren()) {
+            if (treeView.isVisible(child)) {
+                insertedIdx.add(node.getChildCount());
+                node.add(createTreeNode(child));
             }
-            if (!a.isDirectory() && b.isDirectory()) {
-                return 1;
+        }
+        node.loaded = true;
+        if (!insertedIdx.isEmpty()) {
+            treeModel.nodesWereInserted(node, toIntArray(insertedIdx));
+        }
+    }
+
+    private void revealActiveFile() {
+        Component comp = tabbedPane.getSelectedComponent();
+        if (!(comp instanceof JPanel) || projectIndex == null) {
+            return;
+        }
+        Object file = ((JPanel) comp).getClientProperty("file");
+        if (!(file instanceof File)) {
+            return;
+        }
+        List<ProjectIndex.Entry> chain = projectIndex.pathTo((File) file);
+        DefaultMutableTreeNode node = (DefaultMutableTreeNode) treeModel.getRoot();
+        for (int i = 1; i < chain.size() && node instanceof DirectoryNode; i++) {
+            ensureLoaded((DirectoryNode) node);
+            DefaultMutableTreeNode next = null;
+            for (int c = 0; c < node.getChildCount(); c++) {
+                DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(c);
+                if (entryOf(child) == chain.get(i)) {
+                    next = child;
+                    break;
+                }
             }
-            return a.getName().compareToIgnoreCase(b.getName());
-        });
+            if (next == null) {
+                break;
+            }
+            node = next;
+        }
+        TreePath path = new TreePath(node.getPath());
+        if (node instanceof DirectoryNode) {
+            fileTree.expandPath(path);
+        } else {
+            fileTree.expandPath(path.getParentPath());
+            fileTree.setSelectionPath(path);
+        }
+        fileTree.scrollPathToVisible(path);
+    }
 
-        boolean hasMatches = false;
-        for (File entry : entries) {
-            if (worker.isCancelled()) {
-                throw new CancellationException();
+    // Brings an existing subtree in line with the view, touching only the children that changed.
+    private void syncTreeNode(DefaultMutableTreeNode node, ProjectIndex.Entry dir, ProjectIndex.View view) {
+        List<Integer> removedIdx = new ArrayList<>();
+        List<Object> removedNodes = new ArrayList<>();
+        for (int i = 0; i < node.getChildCount(); i++) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
+            ProjectIndex.Entry entry = entryOf(child);
+            if (entry == null || !view.isVisible(entry)) {
+                removedIdx.add(i);
+                removedNodes.add(child);
+            }
+        }
+        if (!removedIdx.isEmpty()) {
+            for (int i = removedIdx.size() - 1; i >= 0; i--) {
+                node.remove(removedIdx.get(i));
             }
-            if (!entry.canRead()) {
+            treeModel.nodesWereRemoved(node, toIntArray(removedIdx), removedNodes.toArray());
+        }
+
+        List<Integer> insertedIdx = new ArrayList<>();
+        int k = 0;
+        for (ProjectIndex.Entry entry : dir.getChildren()) {
+            if (!view.isVisible(entry)) {
                 continue;
             }
-            if (entry.isDirectory()) {
-                DefaultMutableTreeNode childNode = buildTreeModel(entry, filter, worker, false);
-                if (childNode != null) {
-                    node.add(childNode);
-                    hasMatches = true;
+            DefaultMutableTreeNode existing = k < node.getChildCount() ? (DefaultMutableTreeNode) node.getChildAt(k) : null;
+            if (existing != null && entryOf(existing) == entry) {
+                if (existing instanceof DirectoryNode && ((DirectoryNode) existing).loaded) {
+                    syncTreeNode(existing, entry, view);
                 }
             } else {
-                String lowerName = entry.getName().toLowerCase(Locale.ROOT);
-                if (!lowerName.endsWith(".java")) {
-                    continue;
-                }
-                if (!filter.isEmpty() && !lowerName.contains(filter)) {
-                    continue;
-                }
-                node.add(new DefaultMutableTreeNode(new FileTreeNode(entry)));
-                hasMatches = true;
+                node.insert(createTreeNode(entry), k);
+                insertedIdx.add(k);
             }
+            k++;
         }
-
-        if (!isRoot && !hasMatches) {
-            return null;
+        if (!insertedIdx.isEmpty()) {
+            treeModel.nodesWereInserted(node, toIntArray(insertedIdx));
         }
+    }
 
-        return node;
+    private ProjectIndex.Entry entryOf(DefaultMutableTreeNode node) {
+        Object userObject = node.getUserObject();
+        return userObject instanceof FileTreeNode ? ((FileTreeNode) userObject).getEntry() : null;
     }
 
-    private void expandAllRows() {
-        for (int i = 0; i < fileTree.getRowCount(); i++) {
-            fileTree.expandRow(i);
+    private static int[] toIntArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
         }
+        return result;
     }
 
     private void openFileInTab(File file) {
         // If already open, focus
-        for (int i = 0; i < tabbedPane.getTabCount(); i++) {
-            Component c = tabbedPane.getComponentAt(i);
-            if (c instanceof JScrollPane) {
-                JScrollPane sp = (JScrollPane) c;
-                JViewport v = sp.getViewport();
-                Component inner = v.getView();
-                if (inner instanceof JPanel) {
-                    JPanel p = (JPanel) inner;
-                    if (file.equals(p.getClientProperty("file"))) {
-                        tabbedPane.setSelectedIndex(i);
-                        return;
-                    }
-                }
-            }
+        int existing = findTabFor(file);
+        if (existing >= 0) {
+            tabbedPane.setSelectedIndex(existing);
+            return;
         }
 
-        try {
-            String content = readFile(file, Charset.forName("UTF-8"));
-            JPanel viewer = makeViewerPanel(file, content);
-            tabbedPane.addTab(file.getName(), viewer);
-            int idx = tabbedPane.indexOfComponent(viewer);
-            tabbedPane.setTabComponentAt(idx, makeTabTitle(file.getName()));
-            tabbedPane.setToolTipTextAt(idx, file.getAbsolutePath());
-            tabbedPane.setSelectedIndex(idx);
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Failed to read file: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        JPanel viewer = makeViewerPanel(file, -1);
+        if (viewer == null) {
+            return;
         }
+        tabbedPane.addTab(file.getName(), viewer);
+        int idx = tabbedPane.indexOfComponent(viewer);
+        tabbedPane.setTabComponentAt(idx, makeTabTitle(file.getName()));
+        tabbedPane.setToolTipTextAt(idx, file.getAbsolutePath());
+        tabbedPane.setSelectedIndex(idx);
     }
 
     private Component makeTabTitle(String title) {
@@ -1038,61 +1547,360 @@ public class JavaSourceQuickView extends JFrame {
         return pnl;
     }
 
-    private JPanel makeViewerPanel(File file, String content) {
+    /**
+     * Builds an empty viewer and starts loading {@code file} into it. With a
+     * {@code reloadCaret} of zero or more the panel replaces the file's open tab once its
+     * text is ready; otherwise the caller adds it.
+     */
+    private JPanel makeViewerPanel(File file, int reloadCaret) {
+        if (file.length() >= LargeFileViewer.thresholdBytes()) {
+            return makeLargeFileViewerPanel(file, reloadCaret >= 0);
+        }
         JPanel panel = new JPanel(new BorderLayout());
         panel.putClientProperty("file", file);
 
-        JTextPane textPane = new JTextPane();
+        boolean tokenMode = tokenPainterMode || file.length() >= TOKEN_PAINTER_MIN_BYTES;
+        JTextComponent textPane;
+        if (tokenMode) {
+            JEditorPane painted = new JEditorPane();
+            painted.setEditorKit(createTokenPainterKit());
+            painted.setFont(new Font(Font.MONOSPACED, Font.PLAIN, scaledFontSize(BASE_FONT_SIZE)));
+            painted.setForeground(new Color(0x24292e));
+            textPane = painted;
+        } else {
+            JTextPane styled = new JTextPane();
+            styled.setEditorKit(new LongLineEditorKit());
+            styled.setFont(MONO_FONT);
+            applyBasicStyles(styled.getStyledDocument());
+            textPane = styled;
+        }
         textPane.setEditable(false);
-        textPane.setFont(MONO_FONT);
         textPane.setBackground(SURFACE_COLOR);
-        StyledDocument doc = textPane.getStyledDocument();
-        applyBasicStyles(doc);
-        // Insert content with styles
-        try {
-            doc.insertString(0, content, doc.getStyle("default"));
-        } catch (BadLocationException ex) {
-            ex.printStackTrace();
-        }
-        // Run simple syntax highlight
-        doSyntaxHighlight(textPane, content);
+        panel.putClientProperty("text", textPane);
 
-        String primaryTypeName = detectPrimaryTypeName(content, file != null ? file.getName() : null);
-        List<MethodInfo> methodInfos = parseMethodInfos(content, primaryTypeName);
-        List<MethodInfo> inheritedMethods = loadInheritedMethods(primaryTypeName, content);
-        List<MethodInfo> allMethods = new ArrayList<>(methodInfos);
-        allMethods.addAll(inheritedMethods);
         JEditorPane methodInfoPane = createMethodInfoPane();
         updateMethodInfoDisplay(methodInfoPane, null);
-        attachMethodInsight(textPane, methodInfoPane, allMethods, content, primaryTypeName);
 
-        // Line numbers
-        JTextArea lineNumbers = new JTextArea();
-        lineNumbers.setEditable(false);
-        lineNumbers.setFont(textPane.getFont());
-        lineNumbers.setBackground(new Color(0xf1f3f4));
-        lineNumbers.setForeground(TEXT_MUTED);
-        updateLineNumbers(lineNumbers, content);
+        // Line numbers, painted for the visible lines only
+        LineNumberGutter gutter = new LineNumberGutter(textPane);
+        gutter.setBackground(new Color(0xf1f3f4));
+        gutter.setForeground(TEXT_MUTED);
+        gutter.setCurrentLineColor(new Color(0x24292e));
+        gutter.setMarkerColor(ACCENT_COLOR);
 
         // Sync scrolling
         JScrollPane scroll = new JScrollPane(textPane);
         scroll.setBorder(new MatteBorder(1, 0, 0, 0, BORDER_COLOR));
         scroll.setBackground(SURFACE_COLOR);
-        scroll.setRowHeaderView(lineNumbers);
-        panel.add(scroll, BorderLayout.CENTER);
+        scroll.setRowHeaderView(gutter);
+
+        // Outline of the file's types and methods, filled once the file is analysed
+        OutlinePanel outline = new OutlinePanel((offset, focus) -> revealOffset(textPane, offset, focus));
+        outline.setBackground(SURFACE_COLOR);
+        styleTextField(outline.filterField());
+        outline.filterField().setToolTipText("Filter the outline");
+        outline.entryList().setFont(UI_FONT);
+        outline.entryList().setBackground(SURFACE_COLOR);
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, outline, scroll);
+        split.setBorder(new MatteBorder(0, 0, 0, 0, BORDER_COLOR));
+        split.setDividerLocation(scale(240));
+        showOutline(split, PREFS.getBoolean(PREF_SHOW_OUTLINE, true));
+        panel.putClientProperty("outlineSplit", split);
+        panel.add(split, BorderLayout.CENTER);
 
         panel.add(makeInsightContainer(methodInfoPane), BorderLayout.SOUTH);
 
+        ViewerLoader loader = new ViewerLoader(panel, file, textPane, methodInfoPane, gutter, outline, reloadCaret);
+        panel.putClientProperty("loader", loader);
+        loader.execute();
         return panel;
     }
 
-    private void updateLineNumbers(JTextArea numbers, String content) {
-        int lines = content.split("\n", -1).length;
-        StringBuilder sb = new StringBuilder();
-        for (int i = 1; i <= lines; i++) {
-            sb.append(i).append(System.lineSeparator());
+    private void showOutline(JSplitPane split, boolean show) {
+        Component outline = split.getLeftComponent();
+        if (outline.isVisible() == show) {
+            return;
+        }
+        if (!show) {
+            split.putClientProperty("dividerLocation", split.getDividerLocation());
+        }
+        outline.setVisible(show);
+        split.setDividerSize(show ? UIManager.getInt("SplitPane.dividerSize") : 0);
+        Object location = split.getClientProperty("dividerLocation");
+        split.setDividerLocation(!show ? 0 : location instanceof Integer ? (Integer) location : scale(240));
+    }
+
+    /**
+     * Viewer for files above the large-file threshold: lines are read from disk as they
+     * are shown and there is no insight model. Returns {@code null} if the file cannot be
+     * opened or its tab was closed before a reload.
+     */
+    private JPanel makeLargeFileViewerPanel(File file, boolean reload) {
+        LargeFileViewer viewer;
+        try {
+            viewer = LargeFileViewer.open(file, tokenColors(tokenStyles(styleSample())));
+        } catch (IOException ex) {
+            if (!reload) {
+                JOptionPane.showMessageDialog(this, "Failed to read file: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+            return null;
+        }
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.putClientProperty("file", file);
+        panel.putClientProperty("largeViewer", viewer);
+        viewer.setFont(new Font(Font.MONOSPACED, Font.PLAIN, scaledFontSize(BASE_FONT_SIZE)));
+        viewer.setForeground(new Color(0x24292e));
+        viewer.setBackground(SURFACE_COLOR);
+
+        JComponent gutter = viewer.createGutter();
+        gutter.setBackground(new Color(0xf1f3f4));
+        gutter.setForeground(TEXT_MUTED);
+        JScrollPane scroll = new JScrollPane(viewer);
+        scroll.setBorder(new MatteBorder(1, 0, 0, 0, BORDER_COLOR));
+        scroll.setBackground(SURFACE_COLOR);
+        scroll.setRowHeaderView(gutter);
+        panel.add(scroll, BorderLayout.CENTER);
+
+        JLabel note = new JLabel(String.format("Tệp lớn (%.1f MB): nội dung được đọc theo từng dòng khi hiển thị, không có phần giải thích phương thức.",
+                file.length() / (1024.0 * 1024)));
+        note.setFont(UI_FONT);
+        note.setForeground(TEXT_MUTED);
+        note.setBorder(new CompoundBorder(new MatteBorder(1, 0, 0, 0, BORDER_COLOR),
+                new EmptyBorder(scale(6), scale(12), scale(6), scale(12))));
+        panel.add(note, BorderLayout.SOUTH);
+
+        if (reload) {
+            int idx = findTabFor(file);
+            if (idx < 0) {
+                viewer.close();
+                return null;
+            }
+            LargeFileViewer old = largeViewerOf(tabbedPane.getComponentAt(idx));
+            int line = old != null ? old.getCurrentLine() : 0;
+            tabbedPane.setComponentAt(idx, panel);
+            SwingUtilities.invokeLater(() -> viewer.goToLine(line));
+        }
+        return panel;
+    }
+
+    /**
+     * Fills a viewer in stages: the plain text first, then highlighting, then the insight
+     * model for the file's own methods and finally the inherited ones. The work runs on a
+     * worker thread and each finished stage is handed to the EDT.
+     */
+    private final class ViewerLoader extends SwingWorker<Void, Runnable> {
+
+        private final JPanel panel;
+        private final File file;
+        private final JTextComponent textPane;
+        private final JEditorPane infoPane;
+        private final LineNumberGutter gutter;
+        private final OutlinePanel outlinePanel;
+        private final int reloadCaret;
+        private MethodIndex methods = MethodIndex.EMPTY;
+
+        ViewerLoader(JPanel panel, File file, JTextComponent textPane, JEditorPane infoPane, LineNumberGutter gutter,
+                OutlinePanel outlinePanel, int reloadCaret) {
+            this.panel = panel;
+            this.file = file;
+            this.textPane = textPane;
+            this.infoPane = infoPane;
+            this.gutter = gutter;
+            this.outlinePanel = outlinePanel;
+            this.reloadCaret = reloadCaret;
+        }
+
+        @Override
+        protected Void doInBackground() throws IOException {
+            // large files in the token painter are viewed straight from a mapping, not copied onto the heap
+            MappedContent mapped = textPane instanceof JEditorPane && ((JEditorPane) textPane).getEditorKit() instanceof TokenPainterKit
+                    && file.length() >= TOKEN_PAINTER_MIN_BYTES ? MappedContent.open(file) : null;
+            CharSequence content;
+            if (mapped != null) {
+                // the watcher reloads a changed file only after a pause; painting may notice first
+                mapped.setChangeListener(() -> SwingUtilities.invokeLater(() -> reloadOpenTab(file)));
+                Document doc = mapped.createDocument();
+                content = mapped.text();
+                publish(() -> showDocument(doc));
+            } else {
+                String text = readFile(file, Charset.forName("UTF-8"));
+                content = text;
+                publish(() -> showText(text));
+            }
+
+            // a cached analysis of the same text skips both the lexer and the outline parser
+            AnalysisCache.Key key = AnalysisCache.Key.of(content);
+            AnalysisCache.Analysis cached = analysisCache.get(key, file.getName(), true);
+            int[] tokens = cached != null ? cached.tokens : JavaLexer.tokenize(content);
+            if (isCancelled()) {
+                return null;
+            }
+            if (textPane instanceof JEditorPane && ((JEditorPane) textPane).getEditorKit() instanceof TokenPainterKit) {
+                int[] painted = ((TokenPainterKit) ((JEditorPane) textPane).getEditorKit()).paintedTokens(tokens);
+                publish(() -> {
+                    textPane.getDocument().putProperty(TokenPainterKit.TOKENS_PROPERTY, painted);
+                    textPane.repaint();
+                });
+            } else {
+                publishStyledHighlighting(content.toString(), tokens);
+            }
+
+            AnalysisCache.Analysis analysis = cached != null ? cached : analyze(key, content, file.getName(), tokens);
+            FileOutline outline = outlineFor(file, analysis);
+            MethodIndex own = MethodIndex.of(outline.methods);
+            if (isCancelled()) {
+                return null;
+            }
+            publish(() -> {
+                methods = own;
+                attachMethodInsight(textPane, infoPane, () -> methods, content, analysis.lines, outline.primaryType);
+                outlinePanel.setDeclarations(analysis.declarations, analysis.lines);
+                gutter.setLineIndex(analysis.lines);
+                panel.putClientProperty("lines", analysis.lines);
+                markMethodAtCaret();
+                textPane.addCaretListener(e -> markMethodAtCaret());
+            });
+
+            // the chain completes on the resolver pool after this worker is done, so cancel() no longer
+            // reaches it; a panel closed or replaced by a reload has left the tabs
+            loadInheritedMethods(file, outline).thenAccept(inherited -> {
+                if (inherited.isEmpty()) {
+                    return;
+                }
+                List<MethodInfo> all = new ArrayList<>(outline.methods);
+                all.addAll(inherited);
+                MethodIndex withInherited = MethodIndex.of(all);
+                SwingUtilities.invokeLater(() -> {
+                    if (tabbedPane.indexOfComponent(panel) < 0) {
+                        return;
+                    }
+                    methods = withInherited;
+                    updateMethodInfoDisplay(infoPane,
+                            resolveInsight(textPane, methods, content, analysis.lines, outline.primaryType, textPane.getCaretPosition()));
+                });
+            });
+            return null;
+        }
+
+        // brackets the innermost of the file's own methods holding the caret in the gutter, and selects it in the outline
+        private void markMethodAtCaret() {
+            MethodInfo m = methods.innermostAt(textPane.getCaretPosition());
+            gutter.setMarkedRange(m != null ? m.startOffset : -1, m != null ? m.endOffset : -1);
+            outlinePanel.caretMoved(textPane.getCaretPosition());
+        }
+
+        // The visible part of the live document is styled at once while a fully styled copy is
+        // built here and swapped in whole; only if that fails is the rest styled in place.
+        private void publishStyledHighlighting(String content, int[] tokens) {
+            publish(() -> startHighlighter(tokens, true));
+            BulkStyledDocument styled = new BulkStyledDocument();
+            applyBasicStyles(styled);
+            try {
+                styled.load(content, tokens, styled.getStyle("default"), tokenStyles(styled));
+            } catch (BadLocationException ex) {
+                LOG.log(Level.WARNING, "Cannot build the styled document for " + file, ex);
+                styled = null;
+            }
+            if (isCancelled()) {
+                return;
+            }
+            if (styled != null) {
+                StyledDocument ready = styled;
+                publish(() -> swapDocument(ready));
+            } else {
+                publish(() -> startHighlighter(tokens, false));
+            }
+        }
+
+        private void startHighlighter(int[] tokens, boolean visibleOnly) {
+            stopHighlighter();
+            StyledDocument live = (StyledDocument) textPane.getDocument();
+            IncrementalHighlighter highlighter = new IncrementalHighlighter(textPane, live, tokens, tokenStyles(live), visibleOnly);
+            panel.putClientProperty("highlighter", highlighter);
+            highlighter.start();
+        }
+
+        private void stopHighlighter() {
+            Object highlighter = panel.getClientProperty("highlighter");
+            if (highlighter instanceof IncrementalHighlighter) {
+                ((IncrementalHighlighter) highlighter).stop();
+                panel.putClientProperty("highlighter", null);
+            }
+        }
+
+        private void showText(String content) {
+            Document doc = textPane.getDocument();
+            try {
+                doc.insertString(0, content, doc instanceof StyledDocument ? ((StyledDocument) doc).getStyle("default") : null);
+            } catch (BadLocationException ex) {
+                LOG.log(Level.WARNING, "Cannot show " + file, ex);
+            }
+            showLoaded();
+        }
+
+        private void showDocument(Document doc) {
+            textPane.setDocument(doc);
+            showLoaded();
+        }
+
+        private void showLoaded() {
+            Document doc = textPane.getDocument();
+            if (reloadCaret >= 0) {
+                int idx = findTabFor(file);
+                if (idx < 0) {
+                    cancel(true);
+                    return;
+                }
+                tabbedPane.setComponentAt(idx, panel);
+                textPane.setCaretPosition(Math.min(reloadCaret, doc.getLength()));
+            } else {
+                textPane.setCaretPosition(0);
+            }
+        }
+
+        private void swapDocument(StyledDocument styled) {
+            stopHighlighter();
+            JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, textPane);
+            Point viewPosition = viewport != null ? viewport.getViewPosition() : null;
+            int dot = textPane.getCaret().getDot();
+            int mark = textPane.getCaret().getMark();
+            textPane.setDocument(styled);
+            textPane.getCaret().setDot(mark);
+            textPane.getCaret().moveDot(dot);
+            if (viewPosition != null) {
+                // restored after the new document has been laid out
+                SwingUtilities.invokeLater(() -> viewport.setViewPosition(viewPosition));
+            }
+        }
+
+        @Override
+        protected void process(List<Runnable> stages) {
+            for (Runnable stage : stages) {
+                if (isCancelled()) {
+                    return;
+                }
+                stage.run();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || reloadCaret >= 0) {
+                return;
+            }
+            try {
+                get();
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                int idx = tabbedPane.indexOfComponent(panel);
+                if (idx >= 0) {
+                    tabbedPane.removeTabAt(idx);
+                }
+                JOptionPane.showMessageDialog(JavaSourceQuickView.this, "Failed to read file: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
         }
-        numbers.setText(sb.toString());
     }
 
     private void applyBasicStyles(StyledDocument doc) {
@@ -1129,94 +1937,50 @@ public class JavaSourceQuickView extends JFrame {
         StyleConstants.setForeground(field, new Color(0x00796b)); // teal
     }
 
-    private void doSyntaxHighlight(JTextPane pane, String content) {
-        // Simple regex-based highlighter. Not incremental.
-        String[] keywords = new String[]{
-            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
-            "default", "double", "do", "else", "enum", "extends", "final", "finally", "float", "for", "goto", "if", "implements",
-            "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private", "protected", "public", "return",
-            "short", "static", "strictfp", "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile", "while"
-        };
-        Set<String> kws = new HashSet<>(Arrays.asList(keywords));
-
-        StyledDocument doc = pane.getStyledDocument();
-        // First set entire text to default
-        doc.setCharacterAttributes(0, content.length(), doc.getStyle("default"), true);
-
-        // Comments (//... and /* ... */)
-        Pattern lineComment = Pattern.compile("//.*?$", Pattern.MULTILINE);
-        Pattern blockComment = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
-        Matcher m = blockComment.matcher(content);
-        while (m.find()) {
-            doc.setCharacterAttributes(m.start(), m.end() - m.start(), doc.getStyle("comment"), false);
-        }
-        m = lineComment.matcher(content);
-        while (m.find()) {
-            doc.setCharacterAttributes(m.start(), m.end() - m.start(), doc.getStyle("comment"), false);
-        }
-
-        // Strings
-        Pattern stringPat = Pattern.compile("\"(?:\\\\.|[^\\\"])*\"|\'(?:\\\\.|[^\\\'])*\'");
-        m = stringPat.matcher(content);
-        while (m.find()) {
-            doc.setCharacterAttributes(m.start(), m.end() - m.start(), doc.getStyle("string"), false);
-        }
-
-        // Numbers
-        Pattern numberPat = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
-        m = numberPat.matcher(content);
-        while (m.find()) {
-            doc.setCharacterAttributes(m.start(), m.end() - m.start(), doc.getStyle("number"), false);
-        }
-
-        // Annotations
-        Pattern annotationPat = Pattern.compile("@[A-Za-z_][A-Za-z0-9_]*");
-        m = annotationPat.matcher(content);
-        while (m.find()) {
-            doc.setCharacterAttributes(m.start(), m.end() - m.start(), doc.getStyle("annotation"), false);
-        }
+    // Style for each JavaLexer token kind; null leaves the default style.
+    private static final String[] TOKEN_STYLES = {
+        "comment", "string", "number", "annotation", "keyword", "class-name", "method", "field", null, null
+    };
 
-        // Class/interface/enum names after keywords
-        Pattern classPat = Pattern.compile("\\b(class|interface|enum)\\s+([A-Za-z_][A-Za-z0-9_]*)");
-        m = classPat.matcher(content);
-        while (m.find()) {
-            doc.setCharacterAttributes(m.start(2), m.group(2).length(), doc.getStyle("class-name"), false);
+    // Colours and faces come from the same named styles the styled viewer uses.
+    private TokenPainterKit createTokenPainterKit() {
+        Style[] styles = tokenStyles(styleSample());
+        int[] fontStyles = new int[styles.length];
+        for (int k = 0; k < styles.length; k++) {
+            if (styles[k] != null) {
+                fontStyles[k] = (StyleConstants.isBold(styles[k]) ? Font.BOLD : 0)
+                        | (StyleConstants.isItalic(styles[k]) ? Font.ITALIC : 0);
+            }
         }
+        return new TokenPainterKit(tokenColors(styles), fontStyles);
+    }
 
-        // Fields: simple heuristic for 'type name;' or 'type name ='
-        Pattern fieldPat = Pattern.compile("\\b([A-Za-z_][A-Za-z0-9_<>\\[\\]]*)\\s+([A-Za-z_][A-Za-z0-9_]*)\\s*(=|;)");
-        m = fieldPat.matcher(content);
-        while (m.find()) {
-            doc.setCharacterAttributes(m.start(2), m.group(2).length(), doc.getStyle("field"), false);
-        }
+    // An empty document carrying the viewer styles, for views that paint without one.
+    private StyledDocument styleSample() {
+        StyledDocument sample = new DefaultStyledDocument();
+        applyBasicStyles(sample);
+        return sample;
+    }
 
-        // Methods: identifier followed by '(' not preceded by 'new' or keyword
-        Pattern methodPat = Pattern.compile("\\b([A-Za-z_][A-Za-z0-9_]*)\\s*\\(");
-        m = methodPat.matcher(content);
-        while (m.find()) {
-            String name = m.group(1);
-            // Skip keywords and control flow statements
-            if (kws.contains(name) || "if".equals(name) || "for".equals(name) || "while".equals(name)
-                    || "switch".equals(name) || "catch".equals(name) || "return".equals(name) || "new".equals(name)) {
-                continue;
-            }
-            doc.setCharacterAttributes(m.start(1), name.length(), doc.getStyle("method"), false);
+    private static Color[] tokenColors(Style[] styles) {
+        Color[] colors = new Color[styles.length];
+        for (int k = 0; k < styles.length; k++) {
+            colors[k] = styles[k] != null ? StyleConstants.getForeground(styles[k]) : null;
         }
+        return colors;
+    }
 
-        // Keywords (only outside strings and comments ideally, but we'll do a simple approach)
-        Pattern word = Pattern.compile("\\b([A-Za-z_][A-Za-z0-9_]*)\\b");
-        m = word.matcher(content);
-        while (m.find()) {
-            String w = m.group(1);
-            if (kws.contains(w)) {
-                doc.setCharacterAttributes(m.start(1), w.length(), doc.getStyle("keyword"), false);
-            }
+    private Style[] tokenStyles(StyledDocument doc) {
+        Style[] styles = new Style[TOKEN_STYLES.length];
+        for (int k = 0; k < styles.length; k++) {
+            styles[k] = TOKEN_STYLES[k] != null ? doc.getStyle(TOKEN_STYLES[k]) : null;
         }
+        return styles;
     }
 
-    private void attachMethodInsight(JTextPane textPane, JEditorPane infoPane, List<MethodInfo> methods, String fullText, String primaryTypeName) {
+    private void attachMethodInsight(JTextComponent textPane, JEditorPane infoPane, Supplier<MethodIndex> methods, CharSequence fullText, LineIndex lines, String primaryTypeName) {
         textPane.addCaretListener(e -> {
-            MethodInfo hit = resolveInsight(textPane, methods, fullText, primaryTypeName, e.getDot());
+            MethodInfo hit = resolveInsight(textPane, methods.get(), fullText, lines, primaryTypeName, e.getDot());
             updateMethodInfoDisplay(infoPane, hit);
         });
         textPane.addMouseListener(new MouseAdapter() {
@@ -1226,16 +1990,16 @@ public class JavaSourceQuickView extends JFrame {
                 if (pos < 0) {
                     return;
                 }
-                MethodInfo hit = resolveInsight(textPane, methods, fullText, primaryTypeName, pos);
+                MethodInfo hit = resolveInsight(textPane, methods.get(), fullText, lines, primaryTypeName, pos);
                 updateMethodInfoDisplay(infoPane, hit);
             }
         });
-        MethodInfo initial = resolveInsight(textPane, methods, fullText, primaryTypeName, textPane.getCaretPosition());
+        MethodInfo initial = resolveInsight(textPane, methods.get(), fullText, lines, primaryTypeName, textPane.getCaretPosition());
         updateMethodInfoDisplay(infoPane, initial);
-        installDocHoverHints(textPane, methods, fullText, primaryTypeName);
+        installDocHoverHints(textPane, methods, fullText, lines, primaryTypeName);
     }
 
-    private void installDocHoverHints(JTextPane textPane, List<MethodInfo> methods, String fullText, String primaryTypeName) {
+    private void installDocHoverHints(JTextComponent textPane, Supplier<MethodIndex> methods, CharSequence fullText, LineIndex lines, String primaryTypeName) {
         Highlighter highlighter = textPane.getHighlighter();
         Cursor defaultCursor = textPane.getCursor();
         MouseInputAdapter hoverListener = new MouseInputAdapter() {
@@ -1259,7 +2023,7 @@ public class JavaSourceQuickView extends JFrame {
                     clearHover();
                     return;
                 }
-                MethodInfo hit = resolveInsight(textPane, methods, fullText, primaryTypeName, pos);
+                MethodInfo hit = resolveInsight(textPane, methods.get(), fullText, lines, primaryTypeName, pos);
                 if (hit == null) {
                     clearHover();
                     return;
@@ -1321,8 +2085,11 @@ public class JavaSourceQuickView extends JFrame {
         return container;
     }
 
-    private MethodInfo resolveInsight(JTextPane textPane, List<MethodInfo> methods, String fullText, String primaryTypeName, int caretPos) {
-        MethodInfo invocation = inferInvocationAt(fullText, caretPos, primaryTypeName);
+    private MethodInfo resolveInsight(JTextComponent textPane, MethodIndex methods, CharSequence fullText, LineIndex lines, String primaryTypeName, int caretPos) {
+        if (lines.columnOf(caretPos) > INSIGHT_MAX_COLUMN) {
+            return null;
+        }
+        MethodInfo invocation = inferInvocationAt(fullText, lines, caretPos, primaryTypeName);
         MethodInfo matchedInvocation = matchMethodDefinition(invocation, methods);
         if (matchedInvocation != null) {
             return matchedInvocation;
@@ -1331,7 +2098,7 @@ public class JavaSourceQuickView extends JFrame {
             return invocation;
         }
 
-        MethodInfo targetedMethod = findMethodAt(methods, caretPos);
+        MethodInfo targetedMethod = methods.innermostAt(caretPos);
         if (targetedMethod != null) {
             return targetedMethod;
         }
@@ -1339,30 +2106,30 @@ public class JavaSourceQuickView extends JFrame {
         int selStart = textPane.getSelectionStart();
         int selEnd = textPane.getSelectionEnd();
         if (selEnd > selStart) {
-            MethodInfo bySelection = inferInvocationAt(fullText, Math.max(selEnd - 1, selStart), primaryTypeName);
+            MethodInfo bySelection = inferInvocationAt(fullText, lines, Math.max(selEnd - 1, selStart), primaryTypeName);
             MethodInfo matchedSelection = matchMethodDefinition(bySelection, methods);
             if (matchedSelection != null) {
                 return matchedSelection;
             }
             if (bySelection == null) {
-                bySelection = inferInvocationAt(fullText, selStart, primaryTypeName);
+                bySelection = inferInvocationAt(fullText, lines, selStart, primaryTypeName);
             }
             matchedSelection = matchMethodDefinition(bySelection, methods);
             if (matchedSelection != null) {
                 return matchedSelection;
             }
             if (bySelection == null) {
-                bySelection = inferByName(fullText, selEnd - 1, methods, primaryTypeName);
+                bySelection = inferByName(fullText, lines, selEnd - 1, methods, primaryTypeName);
             }
             if (bySelection == null) {
-                bySelection = inferByName(fullText, selStart, methods, primaryTypeName);
+                bySelection = inferByName(fullText, lines, selStart, methods, primaryTypeName);
             }
             if (bySelection != null) {
                 return bySelection;
             }
         }
 
-        MethodInfo byCaret = inferByName(fullText, caretPos, methods, primaryTypeName);
+        MethodInfo byCaret = inferByName(fullText, lines, caretPos, methods, primaryTypeName);
         if (byCaret != null) {
             return byCaret;
         }
@@ -1381,38 +2148,31 @@ public class JavaSourceQuickView extends JFrame {
         return infoPane;
     }
 
-    private MethodInfo matchMethodDefinition(MethodInfo candidate, List<MethodInfo> methods) {
+    private MethodInfo matchMethodDefinition(MethodInfo candidate, MethodIndex methods) {
         if (candidate == null) {
             return null;
         }
         String candidateOwner = canonicalOwnerKey(candidate.ownerType);
-        for (MethodInfo info : methods) {
-            if (!info.name.equals(candidate.name)) {
-                continue;
-            }
+        for (MethodInfo info : methods.overloads(candidate.name, candidate.params.size())) {
             String infoOwner = canonicalOwnerKey(info.ownerType);
-            if (!candidateOwner.isEmpty() && !infoOwner.isEmpty() && !candidateOwner.equals(infoOwner)) {
-                continue;
-            }
-            if (info.params.size() == candidate.params.size()) {
+            if (candidateOwner.isEmpty() || infoOwner.isEmpty() || candidateOwner.equals(infoOwner)) {
                 return info;
             }
         }
         return null;
     }
 
-    private MethodInfo inferByName(String fullText, int anchorPos, List<MethodInfo> knownMethods, String primaryTypeName) {
+    private MethodInfo inferByName(CharSequence fullText, LineIndex lines, int anchorPos, MethodIndex knownMethods, String primaryTypeName) {
         WordMatch match = extractWordAt(fullText, anchorPos);
         if (match == null) {
             return null;
         }
-        for (MethodInfo info : knownMethods) {
-            if (info.name.equals(match.word)) {
-                return info;
-            }
+        MethodInfo known = knownMethods.first(match.word);
+        if (known != null) {
+            return known;
         }
         String owner = detectOwnerBefore(fullText, match.start, primaryTypeName);
-        MethodInfo synthetic = new MethodInfo(match.word, "", "", "", "", Collections.emptyList(), match.start, match.end, computeLineNumber(fullText, match.start), owner, false, false);
+        MethodInfo synthetic = new MethodInfo(match.word, "", "", "", "", Collections.emptyList(), match.start, match.end, lines.lineOf(match.start) + 1, owner, false, false);
         String builtin = builtInApiSummary(synthetic);
         if (builtin != null) {
             return synthetic;
@@ -1433,146 +2193,48 @@ public class JavaSourceQuickView extends JFrame {
         pane.setCaretPosition(0);
     }
 
-    private MethodInfo findMethodAt(List<MethodInfo> methods, int offset) {
-        for (MethodInfo info : methods) {
-            if (offset >= info.startOffset && offset <= info.endOffset) {
-                return info;
-            }
-        }
-        return null;
-    }
-
     private String buildDefaultInsightMessage() {
         return "<html><body style='margin:0;font-family:" + htmlEscape(UI_FONT.getFamily())
                 + ";font-size:" + UI_FONT.getSize() + "px;color:#4a4f57;'>Chọn một phương thức trong tệp để xem phần giải thích bằng tiếng Việt.</body></html>";
     }
 
-    private List<MethodInfo> parseMethodInfos(String content, String primaryTypeName) {
+    /** Methods and constructors of every type in the file, nested and anonymous ones included. */
+    private List<MethodInfo> collectMethodInfos(List<OutlineParser.Declaration> declarations, LineIndex lines) {
         List<MethodInfo> methods = new ArrayList<>();
-        Pattern methodPattern = Pattern.compile(
-                "(?m)^[\\t ]*(?:@\\w+(?:\\([^)]*\\))?\\s*)*"
-                + "((?:public|protected|private|static|final|abstract|synchronized|native|strictfp|default|\\\\n|\\\\r|\\s)+)?"
-                + "(?:<[^>]+>\\s*)?"
-                + "([\\w$\\[\\].<>?,\\s]+?)\\s+"
-                + "([\\w$]+)\\s*\\(([^)]*)\\)\\s*(throws[^{]*)?\\{"
-        );
-        Matcher matcher = methodPattern.matcher(content);
-        while (matcher.find()) {
-            int bodyStartBrace = matcher.end() - 1;
-            int bodyEnd = findMatchingBrace(content, bodyStartBrace);
-            if (bodyEnd < 0) {
-                continue;
-            }
-            MethodInfo info = buildMethodInfo(matcher, content, bodyStartBrace, bodyEnd, primaryTypeName, false);
-            if (info != null) {
-                methods.add(info);
-            }
-        }
-
-        if (primaryTypeName != null && !primaryTypeName.isEmpty()) {
-            Pattern ctorPattern = Pattern.compile(
-                    "(?m)^[\\t ]*(?:@\\w+(?:\\([^)]*\\))?\\s*)*"
-                    + "((?:public|protected|private|static|final|synchronized|native|strictfp|default|\\\\n|\\\\r|\\s)+)?"
-                    + "(?:<[^>]+>\\s*)?"
-                    + Pattern.quote(primaryTypeName) + "\\s*\\(([^)]*)\\)\\s*(throws[^{]*)?\\{"
-            );
-            Matcher ctorMatcher = ctorPattern.matcher(content);
-            while (ctorMatcher.find()) {
-                int bodyStartBrace = ctorMatcher.end() - 1;
-                int bodyEnd = findMatchingBrace(content, bodyStartBrace);
-                if (bodyEnd < 0) {
-                    continue;
-                }
-                MethodInfo info = buildConstructorInfo(ctorMatcher, content, bodyStartBrace, bodyEnd, primaryTypeName);
-                if (info != null) {
-                    methods.add(info);
-                }
+        for (OutlineParser.Declaration d : OutlineParser.flatten(declarations)) {
+            if (d.kind == OutlineParser.METHOD || d.kind == OutlineParser.CONSTRUCTOR) {
+                methods.add(buildMethodInfo(d, lines));
             }
         }
-
-        methods.sort(Comparator.comparingInt(m -> m.startOffset));
         return methods;
     }
 
-    private List<MethodInfo> loadInheritedMethods(String primaryTypeName, String content) {
-        if (primaryTypeName == null || primaryTypeName.isEmpty()) {
-            return Collections.emptyList();
-        }
-        List<String> parents = extractParentTypes(content);
-        if (parents.isEmpty()) {
-            return Collections.emptyList();
-        }
-        List<MethodInfo> inherited = new ArrayList<>();
-        Set<String> visited = new HashSet<>();
-        visited.add(primaryTypeName);
-        for (String parent : parents) {
-            inherited.addAll(resolveInheritanceChain(parent, visited));
-        }
-        return inherited;
-    }
-
-    private MethodInfo buildMethodInfo(Matcher matcher, String content, int bodyStart, int bodyEnd, String ownerType, boolean constructor) {
-        String access = normalizeSpace(groupSafely(matcher, 1));
-        String modifiers = normalizeSpace(groupSafely(matcher, 2));
-        String returnType = normalizeSpace(groupSafely(matcher, 3));
-        String name = groupSafely(matcher, 4).trim();
-        String params = groupSafely(matcher, 5);
-        String throwsClause = normalizeSpace(groupSafely(matcher, 6));
-        int startOffset = matcher.start();
-        int lineNumber = computeLineNumber(content, startOffset);
-        List<ParamInfo> paramInfos = parseParameters(params);
-        return new MethodInfo(name, returnType, access, modifiers, throwsClause, paramInfos, startOffset, bodyEnd, lineNumber, ownerType, constructor, false);
-    }
-
-    private MethodInfo buildConstructorInfo(Matcher matcher, String content, int bodyStart, int bodyEnd, String ownerType) {
-        String access = normalizeSpace(groupSafely(matcher, 1));
-        String modifiers = normalizeSpace(groupSafely(matcher, 2));
-        String params = groupSafely(matcher, 3);
-        String throwsClause = normalizeSpace(groupSafely(matcher, 4));
-        int startOffset = matcher.start();
-        int lineNumber = computeLineNumber(content, startOffset);
-        List<ParamInfo> paramInfos = parseParameters(params);
-        return new MethodInfo(ownerType, ownerType, access, modifiers, throwsClause, paramInfos, startOffset, bodyEnd, lineNumber, ownerType, true, false);
-    }
-
-    private int findMatchingBrace(String text, int openPos) {
-        int depth = 0;
-        for (int i = openPos; i < text.length(); i++) {
-            char c = text.charAt(i);
-            if (c == '{') {
-                depth++;
-            } else if (c == '}') {
-                depth--;
-                if (depth == 0) {
-                    return i;
-                }
-            } else if (c == '"' || c == '\'') {
-                i = skipQuoted(text, i, c);
-            } else if (c == '/' && i + 1 < text.length()) {
-                char next = text.charAt(i + 1);
-                if (next == '/') {
-                    i = skipLineComment(text, i + 2);
-                } else if (next == '*') {
-                    i = skipBlockComment(text, i + 2);
-                }
-            }
+    /** Methods {@code file} inherits from types declared in the project, nearest types first. */
+    private CompletableFuture<List<MethodInfo>> loadInheritedMethods(File file, FileOutline outline) {
+        if (outline.primaryType.isEmpty() || outline.parentTypes.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
         }
-        return -1;
+        return inheritedThrough(resolveParentFiles(outline), Collections.singleton(file.getPath()));
     }
 
-    private int skipQuoted(String text, int start, char quote) {
-        for (int i = start + 1; i < text.length(); i++) {
-            char c = text.charAt(i);
-            if (c == '\\') {
-                i++;
-            } else if (c == quote) {
-                return i;
-            }
-        }
-        return text.length() - 1;
+    private MethodInfo buildMethodInfo(OutlineParser.Declaration d, LineIndex lines) {
+        OutlineParser.Declaration type = d.enclosingType();
+        String owner = type != null ? type.name : "";
+        String access = "";
+        StringBuilder modifiers = new StringBuilder();
+        for (String modifier : d.modifiers.split(" ")) {
+            if (modifier.equals("public") || modifier.equals("protected") || modifier.equals("private")) {
+                access = modifier;
+            } else if (!modifier.isEmpty()) {
+                modifiers.append(modifiers.length() > 0 ? " " : "").append(modifier);
+            }
+        }
+        boolean constructor = d.kind == OutlineParser.CONSTRUCTOR;
+        return new MethodInfo(d.name, constructor ? owner : d.type, access, modifiers.toString(), d.throwsClause,
+                d.params, d.start, d.end, lines.lineOf(d.start) + 1, owner, constructor, false);
     }
 
-    private int skipLineComment(String text, int start) {
+    private int skipLineComment(CharSequence text, int start) {
         for (int i = start; i < text.length(); i++) {
             if (text.charAt(i) == '\n') {
                 return i;
@@ -1581,7 +2243,7 @@ public class JavaSourceQuickView extends JFrame {
         return text.length() - 1;
     }
 
-    private int skipBlockComment(String text, int start) {
+    private int skipBlockComment(CharSequence text, int start) {
         for (int i = start; i < text.length() - 1; i++) {
             if (text.charAt(i) == '*' && text.charAt(i + 1) == '/') {
                 return i + 1;
@@ -1590,38 +2252,6 @@ public class JavaSourceQuickView extends JFrame {
         return text.length() - 1;
     }
 
-    private List<ParamInfo> parseParameters(String params) {
-        List<ParamInfo> result = new ArrayList<>();
-        if (params == null || params.trim().isEmpty()) {
-            return result;
-        }
-        String[] parts = params.split(",");
-        for (String raw : parts) {
-            String trimmed = raw.trim();
-            if (trimmed.isEmpty()) {
-                continue;
-            }
-            String[] tokens = trimmed.split("\\s+");
-            if (tokens.length == 0) {
-                continue;
-            }
-            String name = tokens[tokens.length - 1];
-            StringBuilder typeBuilder = new StringBuilder();
-            for (int i = 0; i < tokens.length - 1; i++) {
-                if (i > 0) {
-                    typeBuilder.append(' ');
-                }
-                typeBuilder.append(tokens[i]);
-            }
-            String type = typeBuilder.length() > 0 ? typeBuilder.toString() : name;
-            if (type.endsWith("...")) {
-                type = type.replace("...", "...");
-            }
-            result.add(new ParamInfo(type, name));
-        }
-        return result;
-    }
-
     private List<ParamInfo> buildArgumentInfo(String argsText) {
         List<ParamInfo> result = new ArrayList<>();
         List<String> parts = splitArguments(argsText);
@@ -1705,62 +2335,176 @@ public class JavaSourceQuickView extends JFrame {
         return args;
     }
 
-    private List<MethodInfo> resolveInheritanceChain(String typeName, Set<String> visited) {
-        String clean = cleanTypeName(typeName);
-        if (clean.isEmpty() || visited.contains(clean)) {
-            return Collections.emptyList();
+    /**
+     * Methods inherited through each of {@code parents} and their own ancestors, in order.
+     * Parents are loaded concurrently; files in {@code visited} are already on the path from
+     * the subtype, so a cycle stops there.
+     */
+    private CompletableFuture<List<MethodInfo>> inheritedThrough(List<File> parents, Set<String> visited) {
+        List<CompletableFuture<List<MethodInfo>>> chains = new ArrayList<>();
+        for (File parent : parents) {
+            if (visited.contains(parent.getPath())) {
+                continue;
+            }
+            Set<String> path = new HashSet<>(visited);
+            path.add(parent.getPath());
+            chains.add(typeLink(parent).thenCompose(link -> inheritedThrough(link.parents, path).thenApply(above -> {
+                List<MethodInfo> chain = new ArrayList<>(link.methods);
+                chain.addAll(above);
+                return chain;
+            })));
         }
-        Set<String> newVisited = new HashSet<>(visited);
-        newVisited.add(clean);
+        return CompletableFuture.allOf(chains.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<MethodInfo> inherited = new ArrayList<>();
+            for (CompletableFuture<List<MethodInfo>> chain : chains) {
+                inherited.addAll(chain.join());
+            }
+            return inherited;
+        });
+    }
 
-        String canonical = canonicalOwnerKey(clean);
-        if (BUILTIN_DOCS.containsKey(canonical)) {
-            inheritanceCache.put(clean, Collections.emptyList());
-            return Collections.emptyList();
+    // Single flight: every chain through the same file shares one load of it.
+    private CompletableFuture<TypeLink> typeLink(File file) {
+        ProjectIndex index = projectIndex;
+        if (index != null && !index.isComplete()) {
+            // a parent may sit in a directory the scan has not reached, so this link is not kept
+            return loadTypeLink(file, null);
         }
+        return inheritanceCache.computeIfAbsent(file.getPath(), key -> loadTypeLink(file, key));
+    }
 
-        if (inheritanceCache.containsKey(clean)) {
-            return new ArrayList<>(inheritanceCache.get(clean));
-        }
+    /** Loads what {@code file} adds to a chain; with a cache {@code key} its type names are tracked for eviction. */
+    private CompletableFuture<TypeLink> loadTypeLink(File file, String key) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                FileOutline outline = loadOutline(file);
+                if (outline == null) {
+                    return TypeLink.EMPTY;
+                }
+                List<MethodInfo> methods = new ArrayList<>();
+                for (MethodInfo info : outline.methods) {
+                    methods.add(info.asInherited(outline.primaryType));
+                }
+                for (String parent : outline.parentTypes) {
+                    if (key != null) {
+                        inheritanceDependents.computeIfAbsent(cleanTypeName(parent), k -> ConcurrentHashMap.newKeySet()).add(key);
+                    }
+                }
+                return new TypeLink(methods, resolveParentFiles(outline));
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "Cannot resolve the supertypes of " + file, ex);
+                return TypeLink.EMPTY;
+            }
+        }, INHERITANCE_POOL);
+    }
 
-        File classFile = findJavaFileForClass(clean);
-        if (classFile == null) {
-            inheritanceCache.put(clean, Collections.emptyList());
-            return Collections.emptyList();
+    // The project files declaring the types the outlined file extends or implements.
+    private List<File> resolveParentFiles(FileOutline outline) {
+        List<File> files = new ArrayList<>();
+        for (String parent : outline.parentTypes) {
+            String clean = cleanTypeName(parent);
+            if (clean.isEmpty() || BUILTIN_DOCS.containsKey(canonicalOwnerKey(clean))) {
+                continue;
+            }
+            File file = findJavaFileForClass(parent, outline);
+            if (file != null) {
+                files.add(file);
+            }
         }
+        return files;
+    }
 
+    // Reuses the indexed outline while the file's time and size still match it.
+    private FileOutline loadOutline(File file) {
+        ProjectIndex.Entry entry = projectIndex != null ? projectIndex.find(file) : null;
+        long lastModified = file.lastModified();
+        long size = file.length();
+        FileOutline cached = entry != null ? entry.outline : null;
+        if (cached != null && cached.matches(lastModified, size)) {
+            return cached;
+        }
         String content;
         try {
-            content = readFile(classFile, Charset.forName("UTF-8"));
+            content = readFile(file, Charset.forName("UTF-8"));
         } catch (IOException e) {
-            inheritanceCache.put(clean, Collections.emptyList());
-            return Collections.emptyList();
+            return null;
         }
+        return rememberOutline(entry, buildOutline(content, file.getName(), lastModified, size));
+    }
 
-        String baseType = detectPrimaryTypeName(content, classFile.getName());
-        List<MethodInfo> methods = parseMethodInfos(content, baseType);
-        List<MethodInfo> inherited = new ArrayList<>();
-        for (MethodInfo info : methods) {
-            inherited.add(info.asInherited(baseType));
+    private FileOutline outlineFor(File file, AnalysisCache.Analysis analysis) {
+        ProjectIndex.Entry entry = projectIndex != null ? projectIndex.find(file) : null;
+        long lastModified = file.lastModified();
+        long size = file.length();
+        FileOutline cached = entry != null ? entry.outline : null;
+        if (cached != null && cached.matches(lastModified, size)) {
+            return cached;
         }
+        return rememberOutline(entry, new FileOutline(lastModified, size, analysis.packageName, analysis.imports,
+                analysis.primaryType, analysis.parentTypes, analysis.methods));
+    }
 
-        for (String parent : extractParentTypes(content)) {
-            inherited.addAll(resolveInheritanceChain(parent, newVisited));
+    private FileOutline buildOutline(CharSequence content, String fileName, long lastModified, long size) {
+        AnalysisCache.Key key = AnalysisCache.Key.of(content);
+        AnalysisCache.Analysis analysis = analysisCache.get(key, fileName, false);
+        if (analysis == null) {
+            analysis = analyze(key, content, fileName, null);
         }
+        return new FileOutline(lastModified, size, analysis.packageName, analysis.imports, analysis.primaryType,
+                analysis.parentTypes, analysis.methods);
+    }
+
+    /**
+     * Completes and stores the cached analysis of {@code content}: the outline is parsed
+     * unless an entry already has it, and {@code tokens}, when given, are attached.
+     */
+    private AnalysisCache.Analysis analyze(AnalysisCache.Key key, CharSequence content, String fileName, int[] tokens) {
+        AnalysisCache.Analysis analysis = analysisCache.peek(key, fileName);
+        if (analysis == null) {
+            String declared = detectPrimaryTypeName(content, null);
+            String primaryType = declared.isEmpty() ? detectPrimaryTypeName(content, fileName) : declared;
+            LineIndex lines = LineIndex.of(content);
+            OutlineParser.Unit unit = OutlineParser.parseUnit(content, tokens != null ? tokens : JavaLexer.tokenize(content));
+            analysis = new AnalysisCache.Analysis(null, lines, unit.packageName, unit.imports, primaryType,
+                    Collections.unmodifiableList(extractParentTypes(content)), unit.declarations,
+                    Collections.unmodifiableList(collectMethodInfos(unit.declarations, lines)),
+                    declared.isEmpty() ? fileName : null);
+        }
+        if (tokens != null && analysis.tokens == null) {
+            analysis = analysis.withTokens(tokens);
+        }
+        analysisCache.put(key, analysis);
+        return analysis;
+    }
 
-        inheritanceCache.put(clean, new ArrayList<>(inherited));
-        return inherited;
+    private FileOutline rememberOutline(ProjectIndex.Entry entry, FileOutline outline) {
+        if (entry != null) {
+            entry.lastModified = outline.lastModified;
+            entry.size = outline.size;
+            entry.outline = outline;
+        }
+        return outline;
     }
 
-    private List<String> extractParentTypes(String content) {
+    private List<String> extractParentTypes(CharSequence content) {
         List<String> parents = new ArrayList<>();
         Set<String> seen = new LinkedHashSet<>();
-        if (content == null || content.isEmpty()) {
+        if (content == null || content.length() == 0) {
             return parents;
         }
 
+        RegexGuard guard = RegexGuard.forText("parent types", content);
+        try {
+            collectParentTypes(guard, content, parents, seen);
+        } catch (RegexGuard.Exhausted ex) {
+            // keep the parents found before the budget ran out
+        }
+        return parents;
+    }
+
+    private void collectParentTypes(RegexGuard guard, CharSequence content, List<String> parents, Set<String> seen) {
         Pattern classPattern = Pattern.compile("class\\s+\\w+\\s*(?:extends\\s+([\\w$.<>]+))?\\s*(?:implements\\s+([\\w$.,<>\\s]+))?", Pattern.MULTILINE);
-        Matcher matcher = classPattern.matcher(content);
+        Matcher matcher = guard.matcher(classPattern, content);
         if (matcher.find()) {
             String extendType = matcher.group(1);
             if (extendType != null && !extendType.trim().isEmpty()) {
@@ -1781,7 +2525,7 @@ public class JavaSourceQuickView extends JFrame {
         }
 
         Pattern interfacePattern = Pattern.compile("interface\\s+\\w+\\s+extends\\s+([\\w$.,<>\\s]+)", Pattern.MULTILINE);
-        Matcher interfaceMatcher = interfacePattern.matcher(content);
+        Matcher interfaceMatcher = guard.matcher(interfacePattern, content);
         while (interfaceMatcher.find()) {
             String list = interfaceMatcher.group(1);
             if (list != null) {
@@ -1793,11 +2537,14 @@ public class JavaSourceQuickView extends JFrame {
                 }
             }
         }
-
-        return parents;
     }
 
     private String cleanTypeName(String raw) {
+        return simplifyOwnerName(stripTypeName(raw));
+    }
+
+    // The type's name as written, qualifier included, without type arguments or array brackets.
+    private static String stripTypeName(String raw) {
         if (raw == null) {
             return "";
         }
@@ -1816,38 +2563,21 @@ public class JavaSourceQuickView extends JFrame {
         if (space >= 0) {
             trimmed = trimmed.substring(0, space);
         }
-        trimmed = trimmed.replaceAll("[;{}]", "");
-        return simplifyOwnerName(trimmed);
+        return trimmed.replaceAll("[;{}]", "");
     }
 
-    private File findJavaFileForClass(String simpleName) {
-        if (simpleName == null || simpleName.isEmpty()) {
-            return null;
-        }
-        if (classFileCache.containsKey(simpleName)) {
-            return classFileCache.get(simpleName);
-        }
-        if (currentRoot == null) {
-            classFileCache.put(simpleName, null);
-            return null;
-        }
-        try {
-            Path rootPath = currentRoot.toPath();
-            try ( java.util.stream.Stream<Path> stream = Files.walk(rootPath)) {
-                Optional<Path> match = stream
-                        .filter(p -> p.getFileName().toString().equals(simpleName + ".java"))
-                        .findFirst();
-                File file = match.map(Path::toFile).orElse(null);
-                classFileCache.put(simpleName, file);
-                return file;
-            }
-        } catch (IOException e) {
-            classFileCache.put(simpleName, null);
+    // Looked up in the project's type-name map, so the disk is never walked for a type.
+    private File findJavaFileForClass(String typeName, FileOutline from) {
+        String name = stripTypeName(typeName);
+        ProjectIndex index = projectIndex;
+        if (name.isEmpty() || index == null) {
             return null;
         }
+        ProjectIndex.Entry entry = index.resolveType(name, from.packageName, from.imports);
+        return entry != null ? entry.file : null;
     }
 
-    private String findTypeOfIdentifier(String content, String identifier, int beforePos) {
+    private String findTypeOfIdentifier(CharSequence content, String identifier, int beforePos) {
         if (content == null || identifier == null || identifier.isEmpty()) {
             return "";
         }
@@ -1855,31 +2585,91 @@ public class JavaSourceQuickView extends JFrame {
         if (searchEnd < 0 || searchEnd > content.length()) {
             searchEnd = content.length();
         }
-        String prefix = content.substring(0, searchEnd);
+        CharSequence prefix = content.subSequence(0, searchEnd);
         String type = "";
+        // the lazy type group backtracks on long runs of names and generics, so this runs on a budget
+        RegexGuard guard = RegexGuard.forText("type of " + identifier, prefix);
+        try {
+            Pattern declPattern = Pattern.compile("([\\w$\\[\\].<>?,\\s]+?)\\s+" + Pattern.quote(identifier) + "\\s*(?:=|;|,|\\))", Pattern.MULTILINE);
+            Matcher matcher = guard.matcher(declPattern, prefix);
+            while (matcher.find()) {
+                type = convertTypeForDisplay(matcher.group(1));
+            }
 
-        Pattern declPattern = Pattern.compile("([\\w$\\[\\].<>?,\\s]+?)\\s+" + Pattern.quote(identifier) + "\\s*(?:=|;|,|\\))", Pattern.MULTILINE);
-        Matcher matcher = declPattern.matcher(prefix);
-        while (matcher.find()) {
-            type = convertTypeForDisplay(matcher.group(1));
-        }
+            Pattern enhancedFor = Pattern.compile("for\\s*\\(\\s*([\\w$\\[\\].<>?,\\s]+?)\\s+" + Pattern.quote(identifier) + "\\s*:");
+            matcher = guard.matcher(enhancedFor, prefix);
+            while (matcher.find()) {
+                type = convertTypeForDisplay(matcher.group(1));
+            }
 
-        Pattern enhancedFor = Pattern.compile("for\\s*\\(\\s*([\\w$\\[\\].<>?,\\s]+?)\\s+" + Pattern.quote(identifier) + "\\s*:");
-        matcher = enhancedFor.matcher(prefix);
-        while (matcher.find()) {
-            type = convertTypeForDisplay(matcher.group(1));
+            Pattern fieldPattern = Pattern.compile("(?:private|protected|public|static|final|transient|volatile|\\s)+([\\w$\\[\\].<>?,\\s]+?)\\s+" + Pattern.quote(identifier) + "\\s*(?:=|;|,)", Pattern.MULTILINE);
+            matcher = guard.matcher(fieldPattern, prefix);
+            while (matcher.find()) {
+                type = convertTypeForDisplay(matcher.group(1));
+            }
+        } catch (RegexGuard.Exhausted ex) {
+            type = findTypeByScan(prefix, identifier);
         }
+        return type;
+    }
 
-        Pattern fieldPattern = Pattern.compile("(?:private|protected|public|static|final|transient|volatile|\\s)+([\\w$\\[\\].<>?,\\s]+?)\\s+" + Pattern.quote(identifier) + "\\s*(?:=|;|,)", Pattern.MULTILINE);
-        matcher = fieldPattern.matcher(prefix);
-        while (matcher.find()) {
-            type = convertTypeForDisplay(matcher.group(1));
+    // Degraded lookup in one backward pass: the type-like word before the last
+    // "identifier" followed by = ; , ) or :.
+    private String findTypeByScan(CharSequence text, String identifier) {
+        int len = identifier.length();
+        for (int at = text.length() - len; at >= 0; at--) {
+            if (text.charAt(at) != identifier.charAt(0) || !regionEquals(text, at, identifier)
+                    || (at > 0 && Character.isJavaIdentifierPart(text.charAt(at - 1)))) {
+                continue;
+            }
+            int next = at + len;
+            if (next < text.length() && Character.isJavaIdentifierPart(text.charAt(next))) {
+                continue;
+            }
+            while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+                next++;
+            }
+            if (next >= text.length() || "=;,):".indexOf(text.charAt(next)) < 0
+                    || (text.charAt(next) == '=' && next + 1 < text.length() && text.charAt(next + 1) == '=')) {
+                continue;
+            }
+            int end = at;
+            while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            int start = end;
+            int depth = 0;
+            while (start > 0) {
+                char c = text.charAt(start - 1);
+                if (c == '>') {
+                    depth++;
+                } else if (c == '<') {
+                    depth--;
+                } else if (!(Character.isJavaIdentifierPart(c) || c == '.' || c == '[' || c == ']' || c == '?'
+                        || (depth > 0 && (c == ',' || Character.isWhitespace(c))))) {
+                    break;
+                }
+                start--;
+            }
+            String type = text.subSequence(start, end).toString();
+            if (!type.isEmpty() && Character.isJavaIdentifierStart(type.charAt(0))
+                    && (!JavaLexer.KEYWORDS.contains(type) || JavaLexer.PRIMITIVES.contains(type))) {
+                return convertTypeForDisplay(type);
+            }
         }
+        return "";
+    }
 
-        return type;
+    private static boolean regionEquals(CharSequence text, int offset, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (text.charAt(offset + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private String resolveOwnerType(String ownerToken, String content, int referencePos, String primaryTypeName) {
+    private String resolveOwnerType(String ownerToken, CharSequence content, int referencePos, String primaryTypeName) {
         if (ownerToken == null) {
             ownerToken = "";
         }
@@ -1930,8 +2720,8 @@ public class JavaSourceQuickView extends JFrame {
         return simple;
     }
 
-    private WordMatch extractWordAt(String text, int anchor) {
-        if (text == null || text.isEmpty()) {
+    private WordMatch extractWordAt(CharSequence text, int anchor) {
+        if (text == null || text.length() == 0) {
             return null;
         }
         if (anchor < 0) {
@@ -1972,11 +2762,11 @@ public class JavaSourceQuickView extends JFrame {
         if (start >= end) {
             return null;
         }
-        return new WordMatch(text.substring(start, end), start, end);
+        return new WordMatch(text.subSequence(start, end).toString(), start, end);
     }
 
-    private String detectOwnerBefore(String text, int position, String primaryTypeName) {
-        if (text == null || text.isEmpty() || position <= 0) {
+    private String detectOwnerBefore(CharSequence text, int position, String primaryTypeName) {
+        if (text == null || text.length() == 0 || position <= 0) {
             return "";
         }
         int index = position - 1;
@@ -1997,11 +2787,11 @@ public class JavaSourceQuickView extends JFrame {
         while (ownerStart >= 0 && (isIdentifierPart(text.charAt(ownerStart)) || text.charAt(ownerStart) == '.')) {
             ownerStart--;
         }
-        return resolveOwnerType(text.substring(ownerStart + 1, ownerEnd + 1), text, ownerStart, primaryTypeName);
+        return resolveOwnerType(text.subSequence(ownerStart + 1, ownerEnd + 1).toString(), text, ownerStart, primaryTypeName);
     }
 
-    private MethodInfo inferInvocationAt(String content, int offset, String primaryTypeName) {
-        if (content == null || content.isEmpty()) {
+    private MethodInfo inferInvocationAt(CharSequence content, LineIndex lines, int offset, String primaryTypeName) {
+        if (content == null || content.length() == 0) {
             return null;
         }
         if (offset < 0) {
@@ -2034,7 +2824,7 @@ public class JavaSourceQuickView extends JFrame {
         while (nameStart >= 0 && isIdentifierPart(content.charAt(nameStart))) {
             nameStart--;
         }
-        String name = content.substring(nameStart + 1, nameEnd + 1);
+        String name = content.subSequence(nameStart + 1, nameEnd + 1).toString();
         if (name.isEmpty()) {
             return null;
         }
@@ -2053,22 +2843,22 @@ public class JavaSourceQuickView extends JFrame {
             while (ownerStart >= 0 && (isIdentifierPart(content.charAt(ownerStart)) || content.charAt(ownerStart) == '.')) {
                 ownerStart--;
             }
-            ownerToken = content.substring(ownerStart + 1, ownerEnd + 1);
+            ownerToken = content.subSequence(ownerStart + 1, ownerEnd + 1).toString();
         }
         String ownerType = resolveOwnerType(ownerToken, content, Math.max(0, nameStart), primaryTypeName);
         if (ownerType.isEmpty()) {
             ownerType = simplifyOwnerName(ownerToken);
         }
 
-        String argsText = content.substring(openParen + 1, closeParen);
+        String argsText = content.subSequence(openParen + 1, closeParen).toString();
         List<ParamInfo> params = buildArgumentInfo(argsText);
         int startOffset = Math.max(0, nameStart + 1);
         int endOffset = closeParen;
-        int line = computeLineNumber(content, startOffset);
+        int line = lines.lineOf(startOffset) + 1;
         return new MethodInfo(name, "", "", "", "", params, startOffset, endOffset, line, ownerType, false, false);
     }
 
-    private int detectCallParenForward(String text, int offset) {
+    private int detectCallParenForward(CharSequence text, int offset) {
         WordMatch word = extractWordAt(text, offset);
         if (word == null || word.end >= text.length()) {
             return -1;
@@ -2083,7 +2873,7 @@ public class JavaSourceQuickView extends JFrame {
         return -1;
     }
 
-    private int findCallOpenParen(String text, int offset) {
+    private int findCallOpenParen(CharSequence text, int offset) {
         int depth = 0;
         boolean inString = false;
         char stringChar = 0;
@@ -2120,7 +2910,7 @@ public class JavaSourceQuickView extends JFrame {
                 while (nameStart >= 0 && isIdentifierPart(text.charAt(nameStart))) {
                     nameStart--;
                 }
-                String candidate = text.substring(nameStart + 1, nameEnd + 1);
+                String candidate = text.subSequence(nameStart + 1, nameEnd + 1).toString();
                 if (candidate.isEmpty()) {
                     continue;
                 }
@@ -2137,7 +2927,7 @@ public class JavaSourceQuickView extends JFrame {
         return -1;
     }
 
-    private int findMatchingParenForward(String text, int openPos) {
+    private int findMatchingParenForward(CharSequence text, int openPos) {
         int depth = 0;
         boolean inString = false;
         char stringChar = 0;
@@ -2202,16 +2992,6 @@ public class JavaSourceQuickView extends JFrame {
         return trimmed;
     }
 
-    private int computeLineNumber(String text, int offset) {
-        int line = 1;
-        for (int i = 0; i < offset && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                line++;
-            }
-        }
-        return line;
-    }
-
     private String buildMethodExplanation(MethodInfo info) {
         StringBuilder html = new StringBuilder();
         html.append("<html><body style='margin:0;font-family:")
@@ -3147,7 +3927,7 @@ public class JavaSourceQuickView extends JFrame {
         return null;
     }
 
-    private String detectPrimaryTypeName(String content, String fallbackName) {
+    private String detectPrimaryTypeName(CharSequence content, String fallbackName) {
         Pattern typePattern = Pattern.compile("\\b(class|interface|enum)\\s+(\\w+)");
         Matcher m = typePattern.matcher(content);
         if (m.find()) {
@@ -3159,13 +3939,6 @@ public class JavaSourceQuickView extends JFrame {
         return "";
     }
 
-    private String normalizeSpace(String input) {
-        if (input == null) {
-            return "";
-        }
-        return input.trim().replaceAll("\\s+", " ");
-    }
-
     private String convertTypeForDisplay(String rawType) {
         if (rawType == null) {
             return "";
@@ -3209,14 +3982,6 @@ public class JavaSourceQuickView extends JFrame {
         return OWNER_ALIASES.getOrDefault(key, key);
     }
 
-    private String groupSafely(Matcher matcher, int index) {
-        if (index <= matcher.groupCount()) {
-            String value = matcher.group(index);
-            return value != null ? value : "";
-        }
-        return "";
-    }
-
     private String htmlEscape(String input) {
         if (input == null) {
             return "";
@@ -3246,33 +4011,25 @@ public class JavaSourceQuickView extends JFrame {
         if (!(comp instanceof JPanel)) {
             return;
         }
-        JPanel p = (JPanel) comp;
-        JScrollPane sp = (JScrollPane) p.getComponent(0);
-        JViewport v = sp.getViewport();
-        Component inner = v.getView();
-        if (!(inner instanceof JTextPane)) {
-            // in our implementation inner is the JScrollPane's viewport view - but we wrapped a panel
-            // we search the JTextPane inside the viewport
-            inner = findTextPaneInComponent(sp);
-            if (inner == null) {
-                return;
-            }
-        }
-        JTextPane tp = (JTextPane) inner;
         String needle = searchField.getText();
         if (needle == null || needle.isEmpty()) {
             return;
         }
-        String hay = null;
-        try {
-            hay = tp.getDocument().getText(0, tp.getDocument().getLength());
-        } catch (BadLocationException ex) {
+        LargeFileViewer large = largeViewerOf(comp);
+        if (large != null) {
+            large.requestFocusInWindow();
+            large.findNext(needle, () -> JOptionPane.showMessageDialog(this, "Text not found", "Find", JOptionPane.INFORMATION_MESSAGE));
+            return;
+        }
+        JTextComponent tp = viewerTextOf(comp);
+        if (tp == null) {
             return;
         }
+        Document doc = tp.getDocument();
         int selStart = tp.getSelectionStart();
-        int pos = hay.indexOf(needle, selStart == tp.getSelectionEnd() ? selStart + 1 : selStart);
+        int pos = indexOf(doc, needle, selStart == tp.getSelectionEnd() ? selStart + 1 : selStart);
         if (pos < 0) {
-            pos = hay.indexOf(needle);
+            pos = indexOf(doc, needle, 0);
         }
         if (pos >= 0) {
             tp.requestFocusInWindow();
@@ -3291,6 +4048,36 @@ public class JavaSourceQuickView extends JFrame {
         }
     }
 
+    // Searches the document a segment at a time, so a mapped file is never copied whole onto the heap.
+    private static int indexOf(Document doc, String needle, int from) {
+        int length = doc.getLength();
+        int n = needle.length();
+        Segment seg = new Segment();
+        seg.setPartialReturn(true);
+        try {
+            for (int pos = Math.max(0, from); pos + n <= length; pos += seg.count) {
+                doc.getText(pos, length - pos, seg);
+                int candidates = Math.min(seg.count, length - n + 1 - pos);
+                for (int i = 0; i < candidates; i++) {
+                    if (seg.array[seg.offset + i] != needle.charAt(0)) {
+                        continue;
+                    }
+                    int k = 1;
+                    while (k < n && i + k < seg.count && seg.array[seg.offset + i + k] == needle.charAt(k)) {
+                        k++;
+                    }
+                    // a match running past the segment is checked against the text after it
+                    if (k == n || i + k == seg.count && doc.getText(pos + i, n).equals(needle)) {
+                        return pos + i;
+                    }
+                }
+            }
+        } catch (BadLocationException ex) {
+            return -1;
+        }
+        return -1;
+    }
+
     private JLabel createToolbarLabel(String text) {
         JLabel label = new JLabel(text);
         label.setFont(UI_FONT.deriveFont(Font.BOLD, (float) UI_FONT.getSize()));
@@ -3446,16 +4233,21 @@ public class JavaSourceQuickView extends JFrame {
         }
     }
 
-    private Component findTextPaneInComponent(Container c) {
-        for (Component comp : c.getComponents()) {
-            if (comp instanceof JTextPane) {
-                return comp;
+    private JTextComponent viewerTextOf(Component tab) {
+        if (tab instanceof JPanel) {
+            Object text = ((JPanel) tab).getClientProperty("text");
+            if (text instanceof JTextComponent) {
+                return (JTextComponent) text;
             }
-            if (comp instanceof Container) {
-                Component r = findTextPaneInComponent((Container) comp);
-                if (r != null) {
-                    return r;
-                }
+        }
+        return null;
+    }
+
+    private LargeFileViewer largeViewerOf(Component tab) {
+        if (tab instanceof JPanel) {
+            Object viewer = ((JPanel) tab).getClientProperty("largeViewer");
+            if (viewer instanceof LargeFileViewer) {
+                return (LargeFileViewer) viewer;
             }
         }
         return null;
@@ -3466,8 +4258,21 @@ public class JavaSourceQuickView extends JFrame {
         return new String(bytes, cs);
     }
 
-    // Small helper tree node wrapper to store File references in nodes
-    private static class MethodInfo {
+    /** What one file adds to the chains running through it. */
+    private static final class TypeLink {
+
+        static final TypeLink EMPTY = new TypeLink(Collections.emptyList(), Collections.emptyList());
+
+        final List<MethodInfo> methods;
+        final List<File> parents;
+
+        TypeLink(List<MethodInfo> methods, List<File> parents) {
+            this.methods = methods;
+            this.parents = parents;
+        }
+    }
+
+    static class MethodInfo {
 
         final String name;
         final String returnType;
@@ -3541,7 +4346,7 @@ public class JavaSourceQuickView extends JFrame {
         }
     }
 
-    private static class ParamInfo {
+    static class ParamInfo {
 
         final String type;
         final String name;
@@ -3597,21 +4402,39 @@ public class JavaSourceQuickView extends JFrame {
         }
     }
 
+    private static class DirectoryNode extends DefaultMutableTreeNode {
+
+        boolean loaded;
+
+        DirectoryNode(FileTreeNode userObject) {
+            super(userObject);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return false;
+        }
+    }
+
+    // Small helper tree node wrapper to store File references in nodes
     private static class FileTreeNode {
 
-        private final File file;
+        private final ProjectIndex.Entry entry;
 
-        public FileTreeNode(File file) {
-            this.file = file;
+        public FileTreeNode(ProjectIndex.Entry entry) {
+            this.entry = entry;
+        }
+
+        public ProjectIndex.Entry getEntry() {
+            return entry;
         }
 
         public File getFile() {
-            return file;
+            return entry.file;
         }
 
         public String toString() {
-            String name = file.getName();
-            return name.isEmpty() ? file.getAbsolutePath() : name;
+            return entry.name;
         }
     }
 
@@ -0,0 +1,779 @@
+package javasourcequickview;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
+
+/**
+ * Viewer for files too large for a text component. Only a sparse index is kept, the byte
+ * offset of every {@link #LINES_PER_PAGE}th line, built by a background scan; the lines
+ * under the viewport are read through the file channel a page at a time in the background,
+ * lexed one line at a time and painted directly, with placeholder rows until they arrive.
+ * Memory does not grow with the file beyond that index.
+ */
+final class LargeFileViewer extends JComponent implements Scrollable {
+
+    private static final Logger LOG = Logger.getLogger(LargeFileViewer.class.getName());
+    private static final String PREF_THRESHOLD = "largeFileMegabytes";
+    private static final String THRESHOLD_PROPERTY = "javasourcequickview.largeFileMegabytes";
+    private static final int DEFAULT_THRESHOLD_MB = 20;
+
+    private static final int LINES_PER_PAGE = 128;
+    private static final int CACHED_PAGES = 16;
+    private static final int MAX_LINE_BYTES = 16 * 1024;
+    private static final int READ_BYTES = 256 * 1024;
+    private static final int TAB_COLUMNS = 8;
+    private static final Color CURRENT_LINE = new Color(0xeef3ff);
+    private static final Color MATCH = new Color(0xffe58f);
+
+    private final File file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final Color[] colors;
+    // Both touched on the EDT only; pages are read by a PageLoader each.
+    private final Map<Integer, PageLoader> loading = new HashMap<>();
+    private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    // Written by the indexer; the volatile line count publishes the checkpoints before it.
+    private volatile long[] checkpoints = new long[64];
+    private volatile int newlines;
+    private volatile boolean indexed;
+
+    private final Indexer indexer = new Indexer();
+    private SwingWorker<long[], Void> finder;
+    private Gutter gutter;
+    private int currentLine;
+    private int pendingLine = -1;
+    private int matchLine = -1;
+    private int matchStart;
+    private int matchEnd;
+    private long matchByte = -1;
+    private int widest;
+
+    private LargeFileViewer(File file, FileChannel channel, Color[] colors) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.colors = colors;
+        setOpaque(true);
+        setFocusable(true);
+        installNavigation();
+    }
+
+    /**
+     * Opens {@code file} and starts indexing it in the background.
+     *
+     * @param colors indexed by {@link JavaLexer} token kind; a null entry paints in the
+     *               foreground colour
+     */
+    static LargeFileViewer open(File file, Color[] colors) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        LargeFileViewer viewer;
+        try {
+            viewer = new LargeFileViewer(file, channel, colors);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        viewer.indexer.execute();
+        return viewer;
+    }
+
+    /**
+     * Files of at least this size open in this viewer. Taken from the
+     * {@code javasourcequickview.largeFileMegabytes} system property when set, otherwise
+     * from the user's preferences.
+     */
+    static long thresholdBytes() {
+        String value = System.getProperty(THRESHOLD_PROPERTY);
+        int megabytes = DEFAULT_THRESHOLD_MB;
+        try {
+            megabytes = value != null ? Integer.parseInt(value.trim()) : preferences().getInt(PREF_THRESHOLD, DEFAULT_THRESHOLD_MB);
+        } catch (NumberFormatException ex) {
+            LOG.log(Level.WARNING, "Ignoring " + THRESHOLD_PROPERTY + "=" + value);
+        }
+        return Math.max(1, megabytes) * 1024L * 1024;
+    }
+
+    static void setThresholdMegabytes(int megabytes) {
+        preferences().putInt(PREF_THRESHOLD, Math.max(1, megabytes));
+    }
+
+    private static Preferences preferences() {
+        return Preferences.userNodeForPackage(LargeFileViewer.class);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /** Lines known so far; grows while the background scan runs. */
+    int getLineCount() {
+        return indexed ? newlines + 1 : newlines;
+    }
+
+    /** Zero-based line the user is on. */
+    int getCurrentLine() {
+        return currentLine;
+    }
+
+    void close() {
+        indexer.cancel(false);
+        if (finder != null) {
+            finder.cancel(false);
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Moves to a zero-based line. A line the background scan has not reached yet is
+     * remembered and moved to once it has.
+     */
+    void goToLine(int line) {
+        pendingLine = !indexed && line >= getLineCount() ? line : -1;
+        currentLine = Math.max(0, Math.min(line, getLineCount() - 1));
+        int lineHeight = lineHeight();
+        Rectangle visible = getVisibleRect();
+        int top = currentLine * lineHeight - Math.max(0, visible.height / 2 - lineHeight);
+        scrollRectToVisible(new Rectangle(visible.x, Math.max(0, top), 1, visible.height));
+        repaintAll();
+    }
+
+    /**
+     * Searches the file for the next occurrence of {@code needle} after the current match
+     * or line, wrapping around once. The scan runs in the background.
+     */
+    void findNext(String needle, Runnable notFound) {
+        // never interrupt: an interrupted channel read closes the channel
+        if (finder != null) {
+            finder.cancel(false);
+        }
+        byte[] pattern = needle.getBytes(StandardCharsets.UTF_8);
+        long from = matchByte >= 0 && matchLine == currentLine ? matchByte + 1 : lineStartByte(currentLine);
+        finder = new SwingWorker<long[], Void>() {
+            @Override
+            protected long[] doInBackground() throws IOException {
+                long at = search(this, pattern, from, fileSize);
+                if (at < 0) {
+                    at = search(this, pattern, 0, from);
+                }
+                return at < 0 ? null : locate(at, pattern.length);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    long[] hit = get();
+                    if (hit == null) {
+                        notFound.run();
+                        return;
+                    }
+                    matchByte = hit[0];
+                    matchLine = (int) hit[1];
+                    matchStart = (int) hit[2];
+                    matchEnd = (int) hit[3];
+                    goToLine(matchLine);
+                    int line = matchLine;
+                    withLineText(line, text -> {
+                        Rectangle visible = getVisibleRect();
+                        int x = xOf(text, matchStart);
+                        if (matchLine == line && (x < visible.x || x > visible.x + visible.width)) {
+                            scrollRectToVisible(new Rectangle(Math.max(0, x - visible.width / 3), visible.y, visible.width, visible.height));
+                        }
+                    });
+                } catch (ExecutionException ex) {
+                    LOG.log(Level.WARNING, "Search failed in " + file, ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        finder.execute();
+    }
+
+    /** A row header painting the numbers of the visible lines. */
+    JComponent createGutter() {
+        gutter = new Gutter();
+        return gutter;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        Font font = getFont();
+        int charWidth = font != null ? getFontMetrics(font).charWidth('m') : 8;
+        return new Dimension(Math.max(widest, 80 * charWidth), Math.max(1, getLineCount()) * lineHeight());
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? lineHeight() : getFontMetrics(getFont()).charWidth('m') * 4;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? Math.max(lineHeight(), visibleRect.height - lineHeight()) : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.setFont(getFont());
+        FontMetrics fm = g.getFontMetrics();
+        int lineHeight = lineHeight();
+        int first = clip.y / lineHeight;
+        int last = Math.min(getLineCount() - 1, (clip.y + clip.height) / lineHeight);
+        int widestPainted = widest;
+        for (int line = first; line <= last; line++) {
+            int top = line * lineHeight;
+            if (line == currentLine) {
+                g.setColor(CURRENT_LINE);
+                g.fillRect(clip.x, top, clip.width, lineHeight);
+            }
+            Page page = page(line);
+            int index = line % LINES_PER_PAGE;
+            if (page == null || index >= page.lines.length) {
+                g.setColor(Color.LIGHT_GRAY);
+                g.drawString("…", 0, top + fm.getAscent());
+                continue;
+            }
+            String text = page.lines[index];
+            if (line == matchLine) {
+                int x0 = xOf(text, matchStart);
+                g.setColor(MATCH);
+                g.fillRect(x0, top, Math.max(2, xOf(text, matchEnd) - x0), lineHeight);
+            }
+            int end = paintLine(g, fm, text, page.tokens(index), top + fm.getAscent(), clip.x + clip.width);
+            if (page.truncated[index]) {
+                g.setColor(Color.GRAY);
+                g.drawString(" …", end, top + fm.getAscent());
+            }
+            widestPainted = Math.max(widestPainted, end + fm.charWidth('m') * 4);
+        }
+        if (widestPainted > widest) {
+            widest = widestPainted;
+            revalidate();
+        }
+    }
+
+    // Draws the line token by token, stopping once past the right edge; returns the end x.
+    private int paintLine(Graphics g, FontMetrics fm, String text, int[] tokens, int baseline, int right) {
+        int x = 0;
+        int pos = 0;
+        for (int t = 0; t <= JavaLexer.count(tokens) && x <= right; t++) {
+            int start = t < JavaLexer.count(tokens) ? JavaLexer.start(tokens, t) : text.length();
+            if (start > pos) {
+                g.setColor(getForeground());
+                x = drawRun(g, fm, text, pos, start, x, baseline);
+            }
+            if (t < JavaLexer.count(tokens)) {
+                Color color = colors[JavaLexer.kind(tokens, t)];
+                g.setColor(color != null ? color : getForeground());
+                pos = start + JavaLexer.length(tokens, t);
+                x = drawRun(g, fm, text, start, pos, x, baseline);
+            }
+        }
+        return x;
+    }
+
+    private int drawRun(Graphics g, FontMetrics fm, String text, int from, int to, int x, int baseline) {
+        int runStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || text.charAt(i) == '\t') {
+                if (i > runStart) {
+                    String run = text.substring(runStart, i);
+                    g.drawString(run, x, baseline);
+                    x += fm.stringWidth(run);
+                }
+                if (i < to) {
+                    x = nextTabStop(fm, x);
+                }
+                runStart = i + 1;
+            }
+        }
+        return x;
+    }
+
+    private int xOf(String text, int index) {
+        FontMetrics fm = getFontMetrics(getFont());
+        int x = 0;
+        int runStart = 0;
+        int end = Math.min(index, text.length());
+        for (int i = 0; i < end; i++) {
+            if (text.charAt(i) == '\t') {
+                x = nextTabStop(fm, x + fm.stringWidth(text.substring(runStart, i)));
+                runStart = i + 1;
+            }
+        }
+        return x + fm.stringWidth(text.substring(runStart, end));
+    }
+
+    private static int nextTabStop(FontMetrics fm, int x) {
+        int tabWidth = fm.charWidth(' ') * TAB_COLUMNS;
+        return (x / tabWidth + 1) * tabWidth;
+    }
+
+    private int lineHeight() {
+        Font font = getFont();
+        return font != null ? getFontMetrics(font).getHeight() : 16;
+    }
+
+    // Hands the text of line to action now if its page is loaded, otherwise once it arrives.
+    private void withLineText(int line, Consumer<String> action) {
+        int p = line / LINES_PER_PAGE;
+        int index = line % LINES_PER_PAGE;
+        Page page = page(line);
+        if (page != null && index < page.lines.length) {
+            action.accept(page.lines[index]);
+            return;
+        }
+        PageLoader loader = loading.get(p);
+        if (loader != null) {
+            loader.waiters.add(() -> withLineText(line, action));
+        }
+    }
+
+    // The cached page holding line, or null; a missing or short page is loaded in the background.
+    private Page page(int line) {
+        int p = line / LINES_PER_PAGE;
+        int wanted = Math.min(LINES_PER_PAGE, getLineCount() - p * LINES_PER_PAGE);
+        Page page = pages.get(p);
+        if ((page == null || page.lines.length < wanted) && !loading.containsKey(p) && channel.isOpen()) {
+            PageLoader loader = new PageLoader(p, wanted);
+            loading.put(p, loader);
+            loader.execute();
+        }
+        return page;
+    }
+
+    // Reads the lines of page p, keeping at most MAX_LINE_BYTES of each.
+    private Page readPage(int p, int count) throws IOException {
+        String[] lines = new String[count];
+        boolean[] truncated = new boolean[count];
+        byte[] line = new byte[256];
+        int length = 0;
+        int n = 0;
+        long pos = checkpoints[p];
+        ByteBuffer readBuffer = ByteBuffer.allocate(READ_BYTES);
+        readBuffer.limit(0);
+        while (n < count) {
+            if (!readBuffer.hasRemaining()) {
+                readBuffer.clear();
+                int read = channel.read(readBuffer, pos);
+                readBuffer.flip();
+                if (read <= 0) {
+                    break;
+                }
+                pos += read;
+            }
+            byte b = readBuffer.get();
+            if (b == '\n') {
+                lines[n++] = decodeLine(line, length);
+                length = 0;
+            } else if (length < MAX_LINE_BYTES) {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, Math.min(MAX_LINE_BYTES, length * 2));
+                }
+                line[length++] = b;
+            } else {
+                truncated[n] = true;
+            }
+        }
+        if (n < count) {
+            lines[n++] = decodeLine(line, length);
+        }
+        while (n < count) {
+            lines[n++] = "";
+        }
+        return new Page(lines, truncated);
+    }
+
+    private static String decodeLine(byte[] bytes, int length) {
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private long lineStartByte(int line) {
+        int p = Math.min(line / LINES_PER_PAGE, newlines / LINES_PER_PAGE);
+        try {
+            return scanLines(checkpoints[p], fileSize, line - p * LINES_PER_PAGE)[1];
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Cannot read " + file, ex);
+            return checkpoints[p];
+        }
+    }
+
+    // Counts line breaks in [from, to), stopping after limit of them: {breaks, start of the line after the last}.
+    private long[] scanLines(long from, long to, int limit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES);
+        long count = 0;
+        long lineStart = from;
+        long pos = from;
+        while (pos < to && count < limit) {
+            buffer.clear();
+            buffer.limit((int) Math.min(READ_BYTES, to - pos));
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && count < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    count++;
+                    lineStart = pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return new long[]{count, lineStart};
+    }
+
+    // First occurrence of pattern starting in [from, to), or -1.
+    private long search(SwingWorker<?, ?> task, byte[] pattern, long from, long to) throws IOException {
+        if (pattern.length == 0) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES + pattern.length);
+        long pos = from;
+        while (pos < to) {
+            if (task.isCancelled()) {
+                return -1;
+            }
+            buffer.clear();
+            int read = channel.read(buffer, pos);
+            if (read < pattern.length) {
+                return -1;
+            }
+            int last = (int) Math.min(read - pattern.length, to - 1 - pos);
+            outer:
+            for (int i = 0; i <= last; i++) {
+                for (int k = 0; k < pattern.length; k++) {
+                    if (buffer.get(i + k) != pattern[k]) {
+                        continue outer;
+                    }
+                }
+                return pos + i;
+            }
+            pos += last + 1;
+        }
+        return -1;
+    }
+
+    // {byte offset, line, start char, end char} of a match, counting lines from the nearest checkpoint.
+    private long[] locate(long at, int byteLength) throws IOException {
+        long[] starts = checkpoints;
+        int known = newlines / LINES_PER_PAGE;
+        int lo = 0;
+        int hi = Math.min(known, starts.length - 1);
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= at) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        long[] scanned = scanLines(starts[lo], at, Integer.MAX_VALUE);
+        long line = lo * (long) LINES_PER_PAGE + scanned[0];
+        long lineStart = scanned[1];
+        long start = charsIn(lineStart, at);
+        return new long[]{at, line, start, start + charsIn(at, at + byteLength)};
+    }
+
+    // UTF-16 length of the UTF-8 bytes in [from, to), however long a line they lie on.
+    private long charsIn(long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BYTES);
+        long chars = 0;
+        long pos = from;
+        while (pos < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(READ_BYTES, to - pos));
+            int read = channel.read(buffer, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                int b = buffer.get(i) & 0xff;
+                if ((b & 0xc0) != 0x80) {
+                    chars += b >= 0xf0 ? 2 : 1;
+                }
+            }
+            pos += read;
+        }
+        return chars;
+    }
+
+    private void installNavigation() {
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                currentLine = Math.max(0, Math.min(e.getY() / lineHeight(), getLineCount() - 1));
+                repaintAll();
+            }
+        });
+        bind(KeyEvent.VK_UP, 0, "lineUp", () -> moveBy(-1));
+        bind(KeyEvent.VK_DOWN, 0, "lineDown", () -> moveBy(1));
+        bind(KeyEvent.VK_PAGE_UP, 0, "pageUp", () -> moveBy(-Math.max(1, getVisibleRect().height / lineHeight() - 1)));
+        bind(KeyEvent.VK_PAGE_DOWN, 0, "pageDown", () -> moveBy(Math.max(1, getVisibleRect().height / lineHeight() - 1)));
+        bind(KeyEvent.VK_HOME, InputEvent.CTRL_DOWN_MASK, "top", () -> goToLine(0));
+        bind(KeyEvent.VK_END, InputEvent.CTRL_DOWN_MASK, "bottom", () -> goToLine(getLineCount() - 1));
+        bind(KeyEvent.VK_C, InputEvent.CTRL_DOWN_MASK, "copyLine", () -> withLineText(currentLine,
+                text -> Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null)));
+    }
+
+    private void bind(int key, int modifiers, String name, Runnable action) {
+        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(key, modifiers), name);
+        getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    private void moveBy(int lines) {
+        currentLine = Math.max(0, Math.min(currentLine + lines, getLineCount() - 1));
+        scrollRectToVisible(new Rectangle(getVisibleRect().x, currentLine * lineHeight(), 1, lineHeight()));
+        repaintAll();
+    }
+
+    private void repaintAll() {
+        repaint();
+        if (gutter != null) {
+            gutter.repaint();
+        }
+    }
+
+    private void linesChanged() {
+        revalidate();
+        if (gutter != null) {
+            gutter.revalidate();
+        }
+        repaintAll();
+        if (pendingLine >= 0 && (indexed || pendingLine < getLineCount())) {
+            goToLine(pendingLine);
+        }
+    }
+
+    private static final class Page {
+
+        final String[] lines;
+        final boolean[] truncated;
+        private final int[][] tokens;
+
+        Page(String[] lines, boolean[] truncated) {
+            this.lines = lines;
+            this.truncated = truncated;
+            this.tokens = new int[lines.length][];
+        }
+
+        // Lexed on first paint; a comment or text block spanning lines is only seen one line at a time.
+        int[] tokens(int index) {
+            if (tokens[index] == null) {
+                tokens[index] = JavaLexer.tokenize(lines[index]);
+            }
+            return tokens[index];
+        }
+    }
+
+    /** Reads one page off the EDT; painting shows placeholder rows until it is done. */
+    private final class PageLoader extends SwingWorker<Page, Void> {
+
+        private final int p;
+        private final int count;
+        final List<Runnable> waiters = new ArrayList<>();
+
+        PageLoader(int p, int count) {
+            this.p = p;
+            this.count = count;
+        }
+
+        @Override
+        protected Page doInBackground() throws IOException {
+            return readPage(p, count);
+        }
+
+        @Override
+        protected void done() {
+            loading.remove(p);
+            if (!channel.isOpen()) {
+                return;
+            }
+            Page page;
+            try {
+                page = get();
+            } catch (ExecutionException ex) {
+                LOG.log(Level.WARNING, "Cannot read " + file, ex.getCause());
+                page = new Page(new String[count], new boolean[count]);
+                Arrays.fill(page.lines, "");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Page cached = pages.get(p);
+            if (cached == null || cached.lines.length < page.lines.length) {
+                pages.put(p, page);
+            }
+            repaintAll();
+            for (Runnable waiter : waiters) {
+                waiter.run();
+            }
+        }
+    }
+
+    /** Scans the file once, recording where every {@link #LINES_PER_PAGE}th line starts. */
+    private final class Indexer extends SwingWorker<Void, Integer> {
+
+        @Override
+        protected Void doInBackground() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BYTES);
+            long[] starts = checkpoints;
+            int lines = 0;
+            long pos = 0;
+            long published = 0;
+            while (pos < fileSize && !isCancelled()) {
+                buffer.clear();
+                int read = channel.read(buffer, pos);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer.get(i) == '\n') {
+                        lines++;
+                        if (lines % LINES_PER_PAGE == 0) {
+                            int slot = lines / LINES_PER_PAGE;
+                            if (slot == starts.length) {
+                                starts = Arrays.copyOf(starts, slot * 2);
+                                checkpoints = starts;
+                            }
+                            starts[slot] = pos + i + 1;
+                            newlines = lines;
+                        }
+                    }
+                }
+                pos += read;
+                if (pos - published >= 8 * READ_BYTES) {
+                    published = pos;
+                    newlines = lines;
+                    publish(lines);
+                }
+            }
+            newlines = lines;
+            return null;
+        }
+
+        @Override
+        protected void process(List<Integer> chunks) {
+            linesChanged();
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+                indexed = true;
+            } catch (ExecutionException ex) {
+                LOG.log(Level.WARNING, "Cannot index " + file, ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            linesChanged();
+        }
+    }
+
+    private final class Gutter extends JComponent {
+
+        Gutter() {
+            setOpaque(true);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            FontMetrics fm = getFontMetrics(LargeFileViewer.this.getFont());
+            int digits = Math.max(3, String.valueOf(getLineCount()).length());
+            return new Dimension(fm.charWidth('0') * (digits + 2), LargeFileViewer.this.getPreferredSize().height);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            g.setFont(LargeFileViewer.this.getFont());
+            FontMetrics fm = g.getFontMetrics();
+            int lineHeight = lineHeight();
+            int last = Math.min(getLineCount() - 1, (clip.y + clip.height) / lineHeight);
+            int right = getWidth() - fm.charWidth('0');
+            for (int line = clip.y / lineHeight; line <= last; line++) {
+                String number = String.valueOf(line + 1);
+                g.setColor(line == currentLine ? LargeFileViewer.this.getForeground() : getForeground());
+                g.drawString(number, right - fm.stringWidth(number), line * lineHeight + fm.getAscent());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package javasourcequickview;
+
+import java.util.Arrays;
+
+/**
+ * Start offsets of every line of a text, built in one pass so line lookups are binary
+ * searches instead of counting line breaks from the top. Lines are zero-based and end
+ * at {@code '\n'}, matching the line elements of a Swing document.
+ */
+final class LineIndex {
+
+    private final int[] starts;
+    private final int length;
+
+    private LineIndex(int[] starts, int length) {
+        this.starts = starts;
+        this.length = length;
+    }
+
+    static LineIndex of(CharSequence text) {
+        int[] starts = new int[64];
+        int count = 1;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            if (text.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        return new LineIndex(Arrays.copyOf(starts, count), text.length());
+    }
+
+    int lineCount() {
+        return starts.length;
+    }
+
+    /** Line holding {@code offset}; offsets outside the text map to the first or last line. */
+    int lineOf(int offset) {
+        int at = Arrays.binarySearch(starts, Math.max(0, Math.min(offset, length)));
+        return at >= 0 ? at : -at - 2;
+    }
+
+    /** Offset of the first character of {@code line}, clamped to the existing lines. */
+    int lineStart(int line) {
+        return starts[Math.max(0, Math.min(line, starts.length - 1))];
+    }
+
+    /** Offset just past the last character of {@code line}, not counting its line break. */
+    int lineEnd(int line) {
+        int clamped = Math.max(0, Math.min(line, starts.length - 1));
+        return clamped + 1 < starts.length ? starts[clamped + 1] - 1 : length;
+    }
+
+    int columnOf(int offset) {
+        return offset - starts[lineOf(offset)];
+    }
+
+    long bytes() {
+        return 16 + 4L * starts.length;
+    }
+}
@@ -0,0 +1,204 @@
+package javasourcequickview;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.beans.PropertyChangeEvent;
+import javax.swing.JComponent;
+import javax.swing.event.CaretEvent;
+import javax.swing.event.CaretListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+
+/**
+ * Row header that paints the numbers of the lines currently in view, read from the
+ * analysed text's {@link LineIndex} once the viewer has one and from the text component's
+ * own line elements until then, so it holds no text of its own. It can also mark a range
+ * of lines with a bracket, which the viewer uses for the method around the caret.
+ */
+final class LineNumberGutter extends JComponent implements DocumentListener, CaretListener {
+
+    private static final int MIN_DIGITS = 3;
+
+    private final JTextComponent text;
+    private Document document;
+    private LineIndex lines;
+    private int digits = MIN_DIGITS;
+    private int caretLine = -1;
+    private int markStart = -1;
+    private int markEnd = -1;
+    private Color currentLineColor = Color.DARK_GRAY;
+    private Color markerColor = new Color(0x7c9cd6);
+
+    LineNumberGutter(JTextComponent text) {
+        this.text = text;
+        setOpaque(true);
+        setFont(text.getFont());
+        text.addCaretListener(this);
+        text.addPropertyChangeListener("document", this::documentReplaced);
+        text.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                revalidate();
+                repaint();
+            }
+        });
+        attach(text.getDocument());
+        linesChanged();
+    }
+
+    void setCurrentLineColor(Color color) {
+        currentLineColor = color;
+    }
+
+    void setMarkerColor(Color color) {
+        markerColor = color;
+    }
+
+    /** Line starts of the text now shown; dropped again when the text changes. */
+    void setLineIndex(LineIndex lines) {
+        this.lines = lines;
+        linesChanged();
+    }
+
+    /** Brackets the lines spanning {@code [startOffset, endOffset]}; a negative start clears it. */
+    void setMarkedRange(int startOffset, int endOffset) {
+        if (startOffset == markStart && endOffset == markEnd) {
+            return;
+        }
+        markStart = startOffset;
+        markEnd = endOffset;
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics fm = getFontMetrics(getFont());
+        return new Dimension(fm.charWidth('0') * (digits + 2), Math.max(text.getHeight(), 1));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.setFont(getFont());
+        FontMetrics fm = g.getFontMetrics();
+        int right = getWidth() - fm.charWidth('0');
+        int line = lineOf(text.viewToModel(new Point(0, clip.y)));
+        int markFirst = markStart >= 0 ? lineOf(markStart) : -1;
+        int markLast = markStart >= 0 ? lineOf(markEnd) : -1;
+        try {
+            for (int count = lineCount(); line < count; line++) {
+                Rectangle r = text.modelToView(lineStart(line));
+                if (r == null || r.y > clip.y + clip.height) {
+                    break;
+                }
+                String number = String.valueOf(line + 1);
+                int baseline = r.y + (r.height + fm.getAscent() - fm.getDescent()) / 2;
+                g.setColor(line == caretLine ? currentLineColor : getForeground());
+                g.drawString(number, right - fm.stringWidth(number), baseline);
+                if (line >= markFirst && line <= markLast) {
+                    paintMarker(g, line == markFirst, line == markLast, r, line);
+                }
+            }
+        } catch (BadLocationException ignored) {
+            // the document changed under the paint; the change repaints
+        }
+    }
+
+    // A vertical bar at the right edge, with ticks where the range starts and ends.
+    private void paintMarker(Graphics g, boolean first, boolean last, Rectangle lineStart, int line) throws BadLocationException {
+        Rectangle lineEnd = text.modelToView(lineEnd(line));
+        int mid = lineStart.y + lineStart.height / 2;
+        int from = first ? mid : lineStart.y;
+        int to = last ? mid + 2 : (lineEnd != null ? lineEnd.y + lineEnd.height : lineStart.y + lineStart.height);
+        int x = getWidth() - 3;
+        g.setColor(markerColor);
+        g.fillRect(x, from, 2, to - from);
+        if (first || last) {
+            g.fillRect(x - 4, mid, 4, 2);
+        }
+    }
+
+    @Override
+    public void caretUpdate(CaretEvent e) {
+        int line = lineOf(e.getDot());
+        if (line != caretLine) {
+            caretLine = line;
+            repaint();
+        }
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        lines = null;
+        linesChanged();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        lines = null;
+        linesChanged();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // attribute changes keep the line structure
+    }
+
+    private void documentReplaced(PropertyChangeEvent e) {
+        lines = null;
+        attach(text.getDocument());
+        linesChanged();
+    }
+
+    private void attach(Document doc) {
+        if (document != null) {
+            document.removeDocumentListener(this);
+        }
+        document = doc;
+        if (doc != null) {
+            doc.addDocumentListener(this);
+        }
+    }
+
+    private void linesChanged() {
+        int needed = Math.max(MIN_DIGITS, String.valueOf(lineCount()).length());
+        if (needed != digits) {
+            digits = needed;
+            revalidate();
+        }
+        repaint();
+    }
+
+    private int lineCount() {
+        return lines != null ? lines.lineCount() : text.getDocument().getDefaultRootElement().getElementCount();
+    }
+
+    private int lineOf(int offset) {
+        return lines != null ? lines.lineOf(offset) : text.getDocument().getDefaultRootElement().getElementIndex(offset);
+    }
+
+    private int lineStart(int line) {
+        return lines != null ? lines.lineStart(line) : text.getDocument().getDefaultRootElement().getElement(line).getStartOffset();
+    }
+
+    // Offset of the last character of line, its line break if it has one.
+    private int lineEnd(int line) {
+        if (lines != null) {
+            return lines.lineEnd(line);
+        }
+        Element element = text.getDocument().getDefaultRootElement().getElement(line);
+        return Math.max(element.getStartOffset(), element.getEndOffset() - 1);
+    }
+}
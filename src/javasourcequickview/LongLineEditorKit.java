@@ -0,0 +1,190 @@
+package javasourcequickview;
+
+import java.awt.Container;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.SizeRequirements;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BoxView;
+import javax.swing.text.Element;
+import javax.swing.text.FlowView;
+import javax.swing.text.ParagraphView;
+import javax.swing.text.StyledDocument;
+import javax.swing.text.StyledEditorKit;
+import javax.swing.text.View;
+import javax.swing.text.ViewFactory;
+
+/**
+ * Styled editor kit that lays out overlong lines, such as minified code or embedded data
+ * literals, as fixed-size segments. A normal paragraph measures and break-searches its
+ * runs to find every wrap point; a long one is simply cut every so many characters, so
+ * layout, painting and model/view mapping only ever deal with one segment. Model offsets
+ * are unchanged.
+ */
+final class LongLineEditorKit extends StyledEditorKit {
+
+    /** Paragraphs longer than this are segmented. */
+    static final int LONG_LINE_CHARS = 2000;
+
+    private static final int MIN_SEGMENT_CHARS = 16;
+    private static final int MAX_SEGMENT_CHARS = 1000;
+
+    @Override
+    public ViewFactory getViewFactory() {
+        ViewFactory styled = super.getViewFactory();
+        return elem -> AbstractDocument.ParagraphElementName.equals(elem.getName())
+                && elem.getEndOffset() - elem.getStartOffset() > LONG_LINE_CHARS
+                ? new SegmentedParagraphView(elem) : styled.create(elem);
+    }
+
+    @Override
+    public Object clone() {
+        return new LongLineEditorKit();
+    }
+
+    private static final class SegmentedParagraphView extends ParagraphView {
+
+        SegmentedParagraphView(Element elem) {
+            super(elem);
+            strategy = new SegmentStrategy();
+        }
+
+        // The default asks every run for its break opportunities, which is quadratic on a long line.
+        @Override
+        protected SizeRequirements calculateMinorAxisRequirements(int axis, SizeRequirements r) {
+            if (r == null) {
+                r = new SizeRequirements();
+            }
+            int charWidth = charWidth(this, getStartOffset());
+            r.minimum = MIN_SEGMENT_CHARS * charWidth;
+            r.preferred = MAX_SEGMENT_CHARS * charWidth;
+            r.maximum = Integer.MAX_VALUE;
+            r.alignment = 0.5f;
+            return r;
+        }
+
+        @Override
+        protected View createRow() {
+            return new SegmentRow(getElement());
+        }
+    }
+
+    /**
+     * A row holding one segment. Unlike the standard row it never asks its runs for a
+     * minimum span, which would make each of them search the whole line for break points.
+     */
+    private static final class SegmentRow extends BoxView {
+
+        SegmentRow(Element elem) {
+            super(elem, X_AXIS);
+        }
+
+        @Override
+        protected void loadChildren(ViewFactory f) {
+            // filled by the flow strategy
+        }
+
+        @Override
+        public AttributeSet getAttributes() {
+            View parent = getParent();
+            return parent != null ? parent.getAttributes() : null;
+        }
+
+        @Override
+        public int getStartOffset() {
+            return getViewCount() > 0 ? getView(0).getStartOffset() : getElement().getStartOffset();
+        }
+
+        @Override
+        public int getEndOffset() {
+            return getViewCount() > 0 ? getView(getViewCount() - 1).getEndOffset() : getElement().getStartOffset();
+        }
+
+        @Override
+        protected int getViewIndexAtPosition(int pos) {
+            if (pos < getStartOffset() || pos >= getEndOffset()) {
+                return -1;
+            }
+            for (int i = getViewCount() - 1; i >= 0; i--) {
+                if (pos >= getView(i).getStartOffset()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        protected SizeRequirements calculateMajorAxisRequirements(int axis, SizeRequirements r) {
+            if (r == null) {
+                r = new SizeRequirements();
+            }
+            float span = 0;
+            for (int i = 0; i < getViewCount(); i++) {
+                span += getView(i).getPreferredSpan(axis);
+            }
+            r.minimum = r.preferred = r.maximum = (int) span;
+            r.alignment = 0;
+            return r;
+        }
+
+        @Override
+        protected SizeRequirements calculateMinorAxisRequirements(int axis, SizeRequirements r) {
+            return baselineRequirements(axis, r);
+        }
+
+        @Override
+        protected void layoutMinorAxis(int targetSpan, int axis, int[] offsets, int[] spans) {
+            baselineLayout(targetSpan, axis, offsets, spans);
+        }
+    }
+
+    /** One row per segment; a segment is as many characters as fit the width, within bounds. */
+    private static final class SegmentStrategy extends FlowView.FlowStrategy {
+
+        @Override
+        protected int layoutRow(FlowView fv, int rowIndex, int pos) {
+            int end = Math.min(fv.getEndOffset(), pos + segmentChars(fv, rowIndex, pos));
+            List<View> views = new ArrayList<>();
+            while (pos < end) {
+                View v = createView(fv, pos, Integer.MAX_VALUE, rowIndex);
+                if (v == null) {
+                    break;
+                }
+                if (v.getEndOffset() > end) {
+                    v = v.createFragment(pos, end);
+                }
+                views.add(v);
+                pos = v.getEndOffset();
+            }
+            View row = fv.getView(rowIndex);
+            row.replace(0, row.getViewCount(), views.toArray(new View[0]));
+            return views.isEmpty() ? fv.getEndOffset() : pos;
+        }
+
+        @Override
+        protected void adjustRow(FlowView fv, int rowIndex, int desiredSpan, int x) {
+            // rows are cut at fixed offsets, there is nothing to break
+        }
+
+        private int segmentChars(FlowView fv, int rowIndex, int pos) {
+            int span = fv.getFlowSpan(rowIndex);
+            if (span <= 0 || span == Integer.MAX_VALUE) {
+                return MAX_SEGMENT_CHARS;
+            }
+            return Math.max(MIN_SEGMENT_CHARS, Math.min(MAX_SEGMENT_CHARS, span / charWidth(fv, pos)));
+        }
+    }
+
+    // The text is monospaced, so the width of 'm' in the run's font stands for every character.
+    private static int charWidth(View view, int pos) {
+        Container container = view.getContainer();
+        if (container == null) {
+            return 8;
+        }
+        StyledDocument doc = (StyledDocument) view.getDocument();
+        Font font = doc.getFont(doc.getCharacterElement(pos).getAttributes());
+        return Math.max(1, container.getFontMetrics(font).charWidth('m'));
+    }
+}
@@ -0,0 +1,414 @@
+package javasourcequickview;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * Read-only document content backed by a memory-mapped UTF-8 file. Opening it makes one
+ * pass over the bytes to validate them and record where each block and line starts; the
+ * text itself is only decoded block by block when something reads it, and only a few
+ * decoded blocks are kept. The mapping reflects the file on disk, so a tab showing it
+ * must be reloaded when the file changes. The project watcher does that, but only after a
+ * delay, so blocks are decoded only after checking that the file's size and time still
+ * match, at most once every {@link #CHECK_MILLIS} since these reads come from paint code.
+ * A changed file, or a fault from a mapping that was cut short, gives blank text and a call
+ * to the change listener instead of an error in paint code.
+ */
+final class MappedContent implements AbstractDocument.Content {
+
+    private static final int BLOCK_BYTES = 1 << 16;
+    private static final int CACHED_BLOCKS = 32;
+    private static final long CHECK_MILLIS = 500;
+
+    private final MappedByteBuffer bytes;
+    private final File file;
+    private final long size;
+    private final long lastModified;
+    private final int[] blockBytes;
+    private final int[] blockChars;
+    private final int[] lineStarts;
+    private final int length;
+    private final Map<Integer, Block> cache = new LinkedHashMap<Integer, Block>(CACHED_BLOCKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Block> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+    private volatile Block last;
+    private volatile Runnable changeListener;
+    private volatile boolean changed;
+    private volatile long checkedAt;
+
+    private MappedContent(MappedByteBuffer bytes, File file, long size, long lastModified, int[] blockBytes,
+            int[] blockChars, int[] lineStarts, int length) {
+        this.bytes = bytes;
+        this.file = file;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.blockBytes = blockBytes;
+        this.blockChars = blockChars;
+        this.lineStarts = lineStarts;
+        this.length = length;
+        this.last = new Block(0, new char[0]);
+        this.checkedAt = System.nanoTime() - CHECK_MILLIS * 1_000_000L;
+    }
+
+    /**
+     * Maps {@code file} and indexes it. Returns {@code null} when the file is not
+     * well-formed UTF-8, since the heap decoder would substitute characters this content
+     * cannot reproduce; such files should be read the ordinary way. On Windows nothing is
+     * mapped either, since a mapping locks the file against being replaced until it is
+     * garbage collected.
+     */
+    static MappedContent open(File file) throws IOException {
+        if (System.getProperty("os.name", "").startsWith("Windows")) {
+            return null;
+        }
+        MappedByteBuffer bytes;
+        BasicFileAttributes attrs;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() >= Integer.MAX_VALUE) {
+                return null;
+            }
+            attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return index(bytes, file, attrs);
+        } catch (InternalError ex) {
+            // the file was truncated while it was being read
+            throw new IOException("File changed while reading: " + file, ex);
+        }
+    }
+
+    private static MappedContent index(MappedByteBuffer bytes, File file, BasicFileAttributes attrs) {
+        int size = bytes.limit();
+        int[] blockBytes = new int[size / BLOCK_BYTES + 2];
+        int[] blockChars = new int[blockBytes.length];
+        int blocks = 0;
+        int[] lineStarts = new int[1024];
+        int lines = 1;
+        int chars = 0;
+        int i = 0;
+        while (i < size) {
+            if (i - blockBytes[blocks] >= BLOCK_BYTES) {
+                blocks++;
+                blockBytes[blocks] = i;
+                blockChars[blocks] = chars;
+            }
+            int b = bytes.get(i) & 0xff;
+            int width = sequenceLength(bytes, i, size);
+            if (width == 0) {
+                return null;
+            }
+            i += width;
+            chars += width == 4 ? 2 : 1;
+            if (b == '\n') {
+                if (lines == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+                }
+                lineStarts[lines++] = chars;
+            }
+        }
+        blocks++;
+        blockBytes[blocks] = size;
+        blockChars[blocks] = chars;
+        return new MappedContent(bytes, file, size, attrs.lastModifiedTime().toMillis(), Arrays.copyOf(blockBytes, blocks + 1),
+                Arrays.copyOf(blockChars, blocks + 1), Arrays.copyOf(lineStarts, lines), chars);
+    }
+
+    // Width of the well-formed sequence at i, or 0 for anything the JDK decoder would replace.
+    private static int sequenceLength(MappedByteBuffer bytes, int i, int size) {
+        int b = bytes.get(i) & 0xff;
+        if (b < 0x80) {
+            return 1;
+        }
+        int width;
+        int low = 0x80;
+        int high = 0xbf;
+        if (b >= 0xc2 && b <= 0xdf) {
+            width = 2;
+        } else if (b >= 0xe0 && b <= 0xef) {
+            width = 3;
+            low = b == 0xe0 ? 0xa0 : 0x80;
+            high = b == 0xed ? 0x9f : 0xbf;
+        } else if (b >= 0xf0 && b <= 0xf4) {
+            width = 4;
+            low = b == 0xf0 ? 0x90 : 0x80;
+            high = b == 0xf4 ? 0x8f : 0xbf;
+        } else {
+            return 0;
+        }
+        if (i + width > size) {
+            return 0;
+        }
+        int second = bytes.get(i + 1) & 0xff;
+        if (second < low || second > high) {
+            return 0;
+        }
+        for (int k = 2; k < width; k++) {
+            if ((bytes.get(i + k) & 0xc0) != 0x80) {
+                return 0;
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Called once, from whichever thread was reading, when the file is found to differ from
+     * what was mapped; the tab should be reloaded.
+     */
+    void setChangeListener(Runnable listener) {
+        changeListener = listener;
+    }
+
+    /** A document over this content whose line elements are already in place. */
+    PlainDocument createDocument() {
+        return new MappedDocument(this);
+    }
+
+    /** The text without the trailing newline every document content carries. */
+    CharSequence text() {
+        return new Text(0, length);
+    }
+
+    @Override
+    public Position createPosition(int offset) {
+        return () -> offset;
+    }
+
+    @Override
+    public int length() {
+        return length + 1;
+    }
+
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException {
+        throw new BadLocationException("Read-only content", where);
+    }
+
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+        throw new BadLocationException("Read-only content", where);
+    }
+
+    @Override
+    public String getString(int where, int len) throws BadLocationException {
+        Segment segment = new Segment();
+        getChars(where, len, segment);
+        return new String(segment.array, segment.offset, segment.count);
+    }
+
+    /** Points {@code txt} straight into a decoded block when the range fits in one. */
+    @Override
+    public void getChars(int where, int len, Segment txt) throws BadLocationException {
+        if (where < 0 || len < 0 || where + len > length + 1) {
+            throw new BadLocationException("Invalid range", where);
+        }
+        int end = Math.min(where + len, length);
+        if (where < length) {
+            Block block = blockAt(where);
+            if (end <= block.start + block.chars.length || txt.isPartialReturn()) {
+                txt.array = block.chars;
+                txt.offset = where - block.start;
+                txt.count = Math.min(end, block.start + block.chars.length) - where;
+                if (txt.count == len || txt.isPartialReturn()) {
+                    return;
+                }
+            }
+        }
+        char[] copy = new char[len];
+        for (int i = where; i < end; i++) {
+            copy[i - where] = charAt(i);
+        }
+        if (where + len > length) {
+            copy[len - 1] = '\n';
+        }
+        txt.array = copy;
+        txt.offset = 0;
+        txt.count = len;
+    }
+
+    private char charAt(int index) {
+        Block block = last;
+        if (index < block.start || index >= block.start + block.chars.length) {
+            block = blockAt(index);
+        }
+        return block.chars[index - block.start];
+    }
+
+    private Block blockAt(int index) {
+        int lo = 0;
+        int hi = blockChars.length - 2;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (blockChars[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        Block block;
+        synchronized (cache) {
+            block = cache.get(lo);
+            if (block == null) {
+                block = decode(lo);
+                cache.put(lo, block);
+            }
+        }
+        last = block;
+        return block;
+    }
+
+    // The bytes were validated when the file was opened, so this decodes without checks as long
+    // as the file is still the one that was mapped.
+    private Block decode(int index) {
+        char[] chars = new char[blockChars[index + 1] - blockChars[index]];
+        if (changed || !unchanged()) {
+            return blank(index, chars);
+        }
+        try {
+            decodeInto(index, chars);
+        } catch (InternalError ex) {
+            // rewritten in place between the check and the read
+            return blank(index, chars);
+        }
+        return new Block(blockChars[index], chars);
+    }
+
+    // Between checks a truncated mapping still faults, which decode() catches.
+    private boolean unchanged() {
+        long now = System.nanoTime();
+        if (now - checkedAt < CHECK_MILLIS * 1_000_000L) {
+            return true;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            if (attrs.size() != size || attrs.lastModifiedTime().toMillis() != lastModified) {
+                return false;
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+        checkedAt = now;
+        return true;
+    }
+
+    // Spaces keep every line in place until the reload replaces the document.
+    private Block blank(int index, char[] chars) {
+        Arrays.fill(chars, ' ');
+        if (!changed) {
+            changed = true;
+            Runnable listener = changeListener;
+            if (listener != null) {
+                listener.run();
+            }
+        }
+        return new Block(blockChars[index], chars);
+    }
+
+    private void decodeInto(int index, char[] chars) {
+        int c = 0;
+        for (int i = blockBytes[index], end = blockBytes[index + 1]; i < end;) {
+            int b = bytes.get(i) & 0xff;
+            if (b < 0x80) {
+                chars[c++] = (char) b;
+                i++;
+            } else if (b < 0xe0) {
+                chars[c++] = (char) ((b & 0x1f) << 6 | (bytes.get(i + 1) & 0x3f));
+                i += 2;
+            } else if (b < 0xf0) {
+                chars[c++] = (char) ((b & 0x0f) << 12 | (bytes.get(i + 1) & 0x3f) << 6 | (bytes.get(i + 2) & 0x3f));
+                i += 3;
+            } else {
+                int cp = (b & 0x07) << 18 | (bytes.get(i + 1) & 0x3f) << 12 | (bytes.get(i + 2) & 0x3f) << 6 | (bytes.get(i + 3) & 0x3f);
+                chars[c++] = Character.highSurrogate(cp);
+                chars[c++] = Character.lowSurrogate(cp);
+                i += 4;
+            }
+        }
+    }
+
+    private static final class Block {
+
+        final int start;
+        final char[] chars;
+
+        Block(int start, char[] chars) {
+            this.start = start;
+            this.chars = chars;
+        }
+    }
+
+    /** Window onto the mapped text; sub-sequences share the mapping instead of copying. */
+    private final class Text implements CharSequence {
+
+        private final int from;
+        private final int to;
+
+        Text(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return MappedContent.this.charAt(from + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > to - from || start > end) {
+                throw new IndexOutOfBoundsException(start + ", " + end);
+            }
+            return new Text(from + start, from + end);
+        }
+
+        @Override
+        public String toString() {
+            try {
+                return getString(from, to - from);
+            } catch (BadLocationException ex) {
+                throw new IndexOutOfBoundsException(ex.getMessage());
+            }
+        }
+    }
+
+    private static final class MappedDocument extends PlainDocument {
+
+        MappedDocument(MappedContent content) {
+            super(content);
+            BranchElement root = (BranchElement) getDefaultRootElement();
+            int[] starts = content.lineStarts;
+            Element[] lines = new Element[starts.length];
+            for (int i = 0; i < starts.length; i++) {
+                int end = i + 1 < starts.length ? starts[i + 1] : content.length();
+                lines[i] = createLeafElement(root, null, starts[i], end);
+            }
+            root.replace(0, root.getElementCount(), lines);
+        }
+    }
+}
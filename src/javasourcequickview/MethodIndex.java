@@ -0,0 +1,99 @@
+package javasourcequickview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup structure over the methods known for one file. The file's own methods
+ * form a nested interval index: their ranges sorted by start with a link to the range
+ * that encloses each one, so the innermost method around an offset is a binary search
+ * plus a walk up through the few levels of nesting. Every method, inherited ones
+ * included, is also bucketed by name and then by parameter count.
+ */
+final class MethodIndex {
+
+    static final MethodIndex EMPTY = of(Collections.<JavaSourceQuickView.MethodInfo>emptyList());
+
+    private final JavaSourceQuickView.MethodInfo[] ranges;
+    private final int[] starts;
+    private final int[] parents;
+    private final Map<String, Overloads> byName;
+
+    private MethodIndex(List<JavaSourceQuickView.MethodInfo> methods) {
+        List<JavaSourceQuickView.MethodInfo> own = new ArrayList<>();
+        Map<String, Overloads> names = new HashMap<>();
+        for (JavaSourceQuickView.MethodInfo m : methods) {
+            if (!m.inherited) {
+                own.add(m);
+            }
+            names.computeIfAbsent(m.name, k -> new Overloads()).add(m);
+        }
+        // outer ranges first when two start together, so the inner one is found first
+        own.sort((a, b) -> a.startOffset != b.startOffset ? Integer.compare(a.startOffset, b.startOffset)
+                : Integer.compare(b.endOffset, a.endOffset));
+        this.ranges = own.toArray(new JavaSourceQuickView.MethodInfo[0]);
+        this.starts = new int[ranges.length];
+        this.parents = new int[ranges.length];
+        int[] open = new int[ranges.length];
+        int depth = 0;
+        for (int i = 0; i < ranges.length; i++) {
+            starts[i] = ranges[i].startOffset;
+            while (depth > 0 && ranges[open[depth - 1]].endOffset < starts[i]) {
+                depth--;
+            }
+            parents[i] = depth > 0 ? open[depth - 1] : -1;
+            open[depth++] = i;
+        }
+        this.byName = names;
+    }
+
+    /** Indexes {@code methods}; only those not inherited are looked up by offset. */
+    static MethodIndex of(List<JavaSourceQuickView.MethodInfo> methods) {
+        return new MethodIndex(methods);
+    }
+
+    /** The innermost own method whose range, both ends included, holds {@code offset}. */
+    JavaSourceQuickView.MethodInfo innermostAt(int offset) {
+        int i = Arrays.binarySearch(starts, offset);
+        if (i >= 0) {
+            // several ranges may start here; the last of them is the innermost
+            while (i + 1 < starts.length && starts[i + 1] == offset) {
+                i++;
+            }
+        } else {
+            i = -i - 2;
+        }
+        while (i >= 0 && ranges[i].endOffset < offset) {
+            i = parents[i];
+        }
+        return i >= 0 ? ranges[i] : null;
+    }
+
+    /** The first method called {@code name}, own methods in source order before inherited ones. */
+    JavaSourceQuickView.MethodInfo first(String name) {
+        Overloads overloads = byName.get(name);
+        return overloads != null ? overloads.all.get(0) : null;
+    }
+
+    /** Methods called {@code name} taking {@code arity} parameters, in the order they were given. */
+    List<JavaSourceQuickView.MethodInfo> overloads(String name, int arity) {
+        Overloads overloads = byName.get(name);
+        List<JavaSourceQuickView.MethodInfo> bucket = overloads != null ? overloads.byArity.get(arity) : null;
+        return bucket != null ? bucket : Collections.<JavaSourceQuickView.MethodInfo>emptyList();
+    }
+
+    private static final class Overloads {
+
+        final List<JavaSourceQuickView.MethodInfo> all = new ArrayList<>(1);
+        final Map<Integer, List<JavaSourceQuickView.MethodInfo>> byArity = new HashMap<>(2);
+
+        void add(JavaSourceQuickView.MethodInfo m) {
+            all.add(m);
+            byArity.computeIfAbsent(m.params.size(), k -> new ArrayList<>(1)).add(m);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package javasourcequickview;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.AbstractAction;
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.KeyStroke;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+/**
+ * Side panel listing the types, methods and constructors of one file with their line
+ * numbers. Typing in the filter field narrows the list, and the entry around the caret
+ * stays selected: entries are kept sorted by start offset with a link to their enclosing
+ * entry, so the caret is placed by a binary search rather than a scan. The list has a
+ * fixed row height and only paints the rows in view, however long the file.
+ */
+final class OutlinePanel extends JPanel {
+
+    /** Shows an entry the user picked in the text. */
+    interface Navigator {
+
+        /**
+         * @param focus whether the text should take the focus; false while the user is
+         *              still moving through the list
+         */
+        void navigate(int offset, boolean focus);
+    }
+
+    /** One row: a declaration, its nesting depth and where it starts. */
+    static final class Item {
+
+        final int kind;
+        final String label;
+        final int line;
+        final int offset;
+        final int start;
+        final int end;
+        final int depth;
+
+        Item(int kind, String label, int line, int offset, int start, int end, int depth) {
+            this.kind = kind;
+            this.label = label;
+            this.line = line;
+            this.offset = offset;
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+        }
+    }
+
+    private final JTextField filter = new JTextField();
+    private final RowModel model = new RowModel();
+    private final JList<Item> list = new JList<>(model);
+    private final Navigator navigator;
+    private Item[] items = new Item[0];
+    private int[] starts = new int[0];
+    private int[] parents = new int[0];
+    private int[] rowOf = new int[0];
+    private int caret = -1;
+    private boolean syncing;
+    private boolean pressing;
+
+    OutlinePanel(Navigator navigator) {
+        super(new BorderLayout());
+        this.navigator = navigator;
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new ItemRenderer());
+        list.setPrototypeCellValue(new Item(OutlineParser.METHOD, "prototypeMethodName(String, int)", 99999, 0, 0, 0, 2));
+        // moving through the list follows along in the text but leaves the focus here
+        list.addListSelectionListener(e -> {
+            if (!syncing && !pressing && !e.getValueIsAdjusting()) {
+                open(false);
+            }
+        });
+        // a click, even on the row already selected, jumps once on release and hands over the focus
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                pressing = true;
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                pressing = false;
+                open(true);
+            }
+        });
+        list.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "openEntry");
+        list.getActionMap().put("openEntry", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                open(true);
+            }
+        });
+        filter.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+        });
+        filter.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_DOWN && model.getSize() > 0) {
+                    list.requestFocusInWindow();
+                    list.setSelectedIndex(Math.max(0, list.getSelectedIndex()));
+                } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    filter.setText("");
+                } else {
+                    return;
+                }
+                e.consume();
+            }
+        });
+        filter.addActionListener(e -> {
+            if (model.getSize() > 0) {
+                navigator.navigate((list.getSelectedIndex() >= 0 ? list.getSelectedValue() : model.getElementAt(0)).offset, true);
+            }
+        });
+        JScrollPane scroll = new JScrollPane(list);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        add(filter, BorderLayout.NORTH);
+        add(scroll, BorderLayout.CENTER);
+    }
+
+    private void open(boolean focus) {
+        Item item = list.getSelectedValue();
+        if (item != null) {
+            navigator.navigate(item.offset, focus);
+        }
+    }
+
+    JTextField filterField() {
+        return filter;
+    }
+
+    JList<Item> entryList() {
+        return list;
+    }
+
+    /** Replaces the entries with the types, methods and constructors among {@code declarations}. */
+    void setDeclarations(List<OutlineParser.Declaration> declarations, LineIndex lines) {
+        List<Item> collected = new ArrayList<>();
+        List<Integer> parentLinks = new ArrayList<>();
+        collect(declarations, lines, 0, -1, collected, parentLinks);
+        items = collected.toArray(new Item[0]);
+        starts = new int[items.length];
+        parents = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            starts[i] = items[i].start;
+            parents[i] = parentLinks.get(i);
+        }
+        applyFilter();
+    }
+
+    // Depth first, so items come out sorted by start with each parent before its children.
+    private static void collect(List<OutlineParser.Declaration> declarations, LineIndex lines, int depth, int parent,
+            List<Item> out, List<Integer> parents) {
+        for (OutlineParser.Declaration d : declarations) {
+            String label = label(d);
+            int index = parent;
+            if (label != null) {
+                index = out.size();
+                out.add(new Item(d.kind, label, lines.lineOf(d.nameOffset) + 1, d.nameOffset, d.start, d.end, depth));
+                parents.add(parent);
+            }
+            collect(d.children, lines, label != null ? depth + 1 : depth, index, out, parents);
+        }
+    }
+
+    private static String label(OutlineParser.Declaration d) {
+        switch (d.kind) {
+            case OutlineParser.CLASS:
+                return d.anonymous ? "new " + d.name + "() {...}" : "class " + d.name;
+            case OutlineParser.INTERFACE:
+                return "interface " + d.name;
+            case OutlineParser.ENUM:
+                return "enum " + d.name;
+            case OutlineParser.RECORD:
+                return "record " + d.name;
+            case OutlineParser.ANNOTATION_TYPE:
+                return "@interface " + d.name;
+            case OutlineParser.METHOD:
+            case OutlineParser.CONSTRUCTOR:
+                StringBuilder sb = new StringBuilder(d.name).append('(');
+                for (int i = 0; i < d.params.size(); i++) {
+                    sb.append(i > 0 ? ", " : "").append(d.params.get(i).type);
+                }
+                sb.append(')');
+                return d.kind == OutlineParser.METHOD ? sb.append(" : ").append(d.type).toString() : sb.toString();
+            default:
+                return null;
+        }
+    }
+
+    /** Selects the innermost entry around {@code offset}, or its nearest shown ancestor. */
+    void caretMoved(int offset) {
+        caret = offset;
+        int i = Arrays.binarySearch(starts, offset);
+        if (i >= 0) {
+            while (i + 1 < starts.length && starts[i + 1] == offset) {
+                i++;
+            }
+        } else {
+            i = -i - 2;
+        }
+        while (i >= 0 && (items[i].end < offset || rowOf[i] < 0)) {
+            i = parents[i];
+        }
+        syncing = true;
+        try {
+            if (i < 0) {
+                list.clearSelection();
+            } else if (list.getSelectedIndex() != rowOf[i]) {
+                list.setSelectedIndex(rowOf[i]);
+                list.ensureIndexIsVisible(rowOf[i]);
+            }
+        } finally {
+            syncing = false;
+        }
+    }
+
+    private void applyFilter() {
+        String needle = filter.getText().trim().toLowerCase(Locale.ROOT);
+        int[] rows = new int[items.length];
+        rowOf = new int[items.length];
+        int count = 0;
+        for (int i = 0; i < items.length; i++) {
+            if (needle.isEmpty() || items[i].label.toLowerCase(Locale.ROOT).contains(needle)) {
+                rowOf[i] = count;
+                rows[count++] = i;
+            } else {
+                rowOf[i] = -1;
+            }
+        }
+        model.setRows(Arrays.copyOf(rows, count));
+        if (caret >= 0) {
+            caretMoved(caret);
+        }
+    }
+
+    private final class RowModel extends AbstractListModel<Item> {
+
+        private int[] rows = new int[0];
+
+        void setRows(int[] rows) {
+            int old = this.rows.length;
+            this.rows = rows;
+            if (old > 0) {
+                fireIntervalRemoved(this, 0, old - 1);
+            }
+            if (rows.length > 0) {
+                fireIntervalAdded(this, 0, rows.length - 1);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return rows.length;
+        }
+
+        @Override
+        public Item getElementAt(int index) {
+            return items[rows[index]];
+        }
+    }
+
+    // Name indented by depth on the left, line number on the right.
+    private static final class ItemRenderer extends JPanel implements ListCellRenderer<Item> {
+
+        private final JLabel name = new JLabel();
+        private final JLabel line = new JLabel();
+
+        ItemRenderer() {
+            super(new BorderLayout());
+            add(name, BorderLayout.CENTER);
+            add(line, BorderLayout.EAST);
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Item> list, Item item, int index,
+                boolean isSelected, boolean cellHasFocus) {
+            int unit = list.getFontMetrics(list.getFont()).charWidth('m');
+            setBorder(BorderFactory.createEmptyBorder(1, unit / 2 + item.depth * unit, 1, unit / 2));
+            name.setFont(list.getFont());
+            line.setFont(list.getFont());
+            name.setText(item.label);
+            line.setText(String.valueOf(item.line));
+            Color fg = isSelected ? list.getSelectionForeground() : list.getForeground();
+            name.setForeground(fg);
+            line.setForeground(isSelected ? fg : Color.GRAY);
+            setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+            return this;
+        }
+    }
+}
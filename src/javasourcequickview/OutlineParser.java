@@ -0,0 +1,692 @@
+package javasourcequickview;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recursive-descent outline of a Java source, read from the lexer's tokens in one pass.
+ * It records every type, method, constructor, field, initializer and enum constant with
+ * its exact offsets and nesting, including member, local and anonymous classes, records
+ * and annotation types. Brackets are paired up front, so skipping a body or an argument
+ * list is a jump and each token is looked at a bounded number of times. Malformed input
+ * gives a partial outline rather than an error.
+ */
+final class OutlineParser {
+
+    static final int CLASS = 0;
+    static final int INTERFACE = 1;
+    static final int ENUM = 2;
+    static final int RECORD = 3;
+    static final int ANNOTATION_TYPE = 4;
+    static final int ENUM_CONSTANT = 5;
+    static final int METHOD = 6;
+    static final int CONSTRUCTOR = 7;
+    static final int FIELD = 8;
+    static final int INITIALIZER = 9;
+
+    private static final Set<String> MODIFIERS = new HashSet<>(Arrays.asList(
+            "public", "protected", "private", "static", "final", "abstract", "synchronized", "native",
+            "strictfp", "transient", "volatile", "default"));
+
+    /** One declaration; {@link #end} is the offset of its closing brace or semicolon. */
+    static final class Declaration {
+
+        final int kind;
+        final String name;
+        final boolean anonymous;
+        final String modifiers;
+        final String typeParameters;
+        final String type;
+        final List<JavaSourceQuickView.ParamInfo> params;
+        final String throwsClause;
+        final List<String> supertypes;
+        final int start;
+        final int nameOffset;
+        final int bodyStart;
+        final int end;
+        final Declaration parent;
+        final List<Declaration> children = new ArrayList<>();
+
+        private Declaration(int kind, String name, boolean anonymous, Header header, String type,
+                List<JavaSourceQuickView.ParamInfo> params, String throwsClause, List<String> supertypes,
+                int nameOffset, int bodyStart, int end, Declaration parent) {
+            this.kind = kind;
+            this.name = name;
+            this.anonymous = anonymous;
+            this.modifiers = header.modifiers.toString();
+            this.typeParameters = header.typeParameters;
+            this.type = type;
+            this.params = params;
+            this.throwsClause = throwsClause;
+            this.supertypes = supertypes;
+            this.start = header.start;
+            this.nameOffset = nameOffset;
+            this.bodyStart = bodyStart;
+            this.end = end;
+            this.parent = parent;
+        }
+
+        boolean isType() {
+            return kind <= ANNOTATION_TYPE;
+        }
+
+        /** The innermost type this declaration belongs to, or {@code null} at top level. */
+        Declaration enclosingType() {
+            Declaration d = parent;
+            while (d != null && !d.isType()) {
+                d = d.parent;
+            }
+            return d;
+        }
+    }
+
+    /** A parsed source file: its package, its imports and its top-level declarations. */
+    static final class Unit {
+
+        /** The package name, empty for the default package. */
+        final String packageName;
+        /** Imported names as written, {@code java.util.List} or {@code java.util.*}; static imports are left out. */
+        final List<String> imports;
+        final List<Declaration> declarations;
+
+        Unit(String packageName, List<String> imports, List<Declaration> declarations) {
+            this.packageName = packageName;
+            this.imports = imports;
+            this.declarations = declarations;
+        }
+    }
+
+    // Modifiers and type parameters read ahead of a declaration's keyword or type.
+    private static final class Header {
+
+        final int start;
+        final StringBuilder modifiers = new StringBuilder();
+        String typeParameters = "";
+
+        Header(int start) {
+            this.start = start;
+        }
+    }
+
+    private final CharSequence text;
+    private final int[] from;
+    private final int[] to;
+    private final int[] kinds;
+    private final int[] match;
+    private final int n;
+    private final List<Declaration> top = new ArrayList<>();
+    private final List<String> imports = new ArrayList<>();
+    private String packageName = "";
+
+    private OutlineParser(CharSequence text, int[] tokens) {
+        this.text = text;
+        int count = JavaLexer.count(tokens);
+        int[] f = new int[count];
+        int[] t = new int[count];
+        int[] k = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (JavaLexer.kind(tokens, i) != JavaLexer.COMMENT) {
+                f[size] = JavaLexer.start(tokens, i);
+                t[size] = f[size] + JavaLexer.length(tokens, i);
+                k[size] = JavaLexer.kind(tokens, i);
+                size++;
+            }
+        }
+        this.from = f;
+        this.to = t;
+        this.kinds = k;
+        this.n = size;
+        this.match = pairBrackets();
+    }
+
+    /** Top-level declarations of {@code text}, whose children hold everything nested. */
+    static List<Declaration> parse(CharSequence text, int[] tokens) {
+        return parseUnit(text, tokens).declarations;
+    }
+
+    static Unit parseUnit(CharSequence text, int[] tokens) {
+        OutlineParser parser = new OutlineParser(text, tokens);
+        parser.compilationUnit();
+        return new Unit(parser.packageName, Collections.unmodifiableList(parser.imports),
+                Collections.unmodifiableList(parser.top));
+    }
+
+    /** Every declaration in source order, nested ones after their parent. */
+    static List<Declaration> flatten(List<Declaration> declarations) {
+        List<Declaration> all = new ArrayList<>();
+        List<Declaration> stack = new ArrayList<>(declarations);
+        Collections.reverse(stack);
+        while (!stack.isEmpty()) {
+            Declaration d = stack.remove(stack.size() - 1);
+            all.add(d);
+            for (int i = d.children.size() - 1; i >= 0; i--) {
+                stack.add(d.children.get(i));
+            }
+        }
+        return all;
+    }
+
+    // Index of the bracket closing each opener, or n when the text ends first. A closer
+    // with no opener of its kind is ignored; one that skips openers closes them as well.
+    private int[] pairBrackets() {
+        int[] pairs = new int[n];
+        int[] stack = new int[16];
+        int[] open = new int[3];
+        int depth = 0;
+        for (int t = 0; t < n; t++) {
+            pairs[t] = -1;
+            int type = bracket(t, "([{");
+            if (type >= 0) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = t;
+                open[type]++;
+                continue;
+            }
+            type = bracket(t, ")]}");
+            if (type >= 0 && open[type] > 0) {
+                int top;
+                do {
+                    top = stack[--depth];
+                    pairs[top] = t;
+                    open[bracket(top, "([{")]--;
+                } while (bracket(top, "([{") != type);
+            }
+        }
+        while (depth > 0) {
+            pairs[stack[--depth]] = n;
+        }
+        return pairs;
+    }
+
+    private int bracket(int t, String set) {
+        return kinds[t] == JavaLexer.OPERATOR ? set.indexOf(text.charAt(from[t])) : -1;
+    }
+
+    private void compilationUnit() {
+        int t = 0;
+        while (t < n) {
+            if (word(t, "package") || word(t, "import")) {
+                int end = statementEnd(t, n);
+                String name = render(t + 1, end).replace(" ", "");
+                if (word(t, "package")) {
+                    packageName = name;
+                } else if (!word(t + 1, "static")) {
+                    imports.add(name);
+                }
+                t = end + 1;
+            } else if (op(t, ';') || op(t, '}')) {
+                t++;
+            } else {
+                t = member(t, n, null);
+            }
+        }
+    }
+
+    // Parses the member starting at t inside a body ending at limit; returns the token after it.
+    private int member(int t, int limit, Declaration owner) {
+        Header header = new Header(from[t]);
+        t = modifiers(t, limit, header);
+        if (t >= limit) {
+            return limit;
+        }
+        if (op(t, '{')) {
+            int close = match[t];
+            Declaration init = add(new Declaration(INITIALIZER, "", false, header, "", Collections.emptyList(), "",
+                    Collections.emptyList(), from[t], from[t], endOffset(close), owner));
+            code(t + 1, close, init);
+            return close + 1;
+        }
+        if (startsType(t)) {
+            return typeDeclaration(t, limit, header, owner);
+        }
+        if (op(t, '<')) {
+            int after = skipAngle(t, limit);
+            if (after < 0) {
+                return recover(t, limit);
+            }
+            header.typeParameters = render(t, after);
+            t = after;
+        }
+        if (isName(t) && op(t + 1, '(')) {
+            return method(t, t, limit, header, owner, CONSTRUCTOR);
+        }
+        if (owner != null && owner.kind == RECORD && isName(t) && op(t + 1, '{') && owner.name.equals(tokenText(t))) {
+            int close = match[t + 1];
+            Declaration ctor = add(new Declaration(CONSTRUCTOR, owner.name, false, header, "", Collections.emptyList(), "",
+                    Collections.emptyList(), from[t], from[t + 1], endOffset(close), owner));
+            code(t + 2, close, ctor);
+            return close + 1;
+        }
+        int typeEnd = skipType(t, limit);
+        if (typeEnd < 0 || !isName(typeEnd)) {
+            return recover(t, limit);
+        }
+        if (op(typeEnd + 1, '(')) {
+            return method(t, typeEnd, limit, header, owner, METHOD);
+        }
+        return fields(t, typeEnd, limit, header, owner);
+    }
+
+    private int modifiers(int t, int limit, Header header) {
+        while (t < limit) {
+            if (kinds[t] == JavaLexer.ANNOTATION && !is(t, "@interface")) {
+                t = annotationEnd(t);
+            } else if (kinds[t] == JavaLexer.KEYWORD && MODIFIERS.contains(tokenText(t))) {
+                appendModifier(header, tokenText(t));
+                t++;
+            } else if (word(t, "sealed") && t + 1 < limit && kinds[t + 1] == JavaLexer.KEYWORD) {
+                appendModifier(header, "sealed");
+                t++;
+            } else if (word(t, "non") && op(t + 1, '-') && word(t + 2, "sealed")) {
+                appendModifier(header, "non-sealed");
+                t += 3;
+            } else {
+                break;
+            }
+        }
+        return t;
+    }
+
+    private static void appendModifier(Header header, String modifier) {
+        if (header.modifiers.length() > 0) {
+            header.modifiers.append(' ');
+        }
+        header.modifiers.append(modifier);
+    }
+
+    private boolean startsType(int t) {
+        return word(t, "class") || word(t, "interface") || word(t, "enum") || is(t, "@interface")
+                || (word(t, "record") && isName(t + 1) && (op(t + 2, '(') || op(t + 2, '<')));
+    }
+
+    private int typeDeclaration(int t, int limit, Header header, Declaration owner) {
+        int kind = word(t, "class") ? CLASS : word(t, "interface") ? INTERFACE : word(t, "enum") ? ENUM
+                : word(t, "record") ? RECORD : ANNOTATION_TYPE;
+        t++;
+        if (!isName(t)) {
+            return recover(t, limit);
+        }
+        int nameToken = t++;
+        if (op(t, '<')) {
+            int after = skipAngle(t, limit);
+            if (after < 0) {
+                return recover(t, limit);
+            }
+            header.typeParameters = render(t, after);
+            t = after;
+        }
+        List<JavaSourceQuickView.ParamInfo> components = Collections.emptyList();
+        if (kind == RECORD && op(t, '(')) {
+            components = parameters(t + 1, match[t]);
+            t = match[t] + 1;
+        }
+        List<String> supertypes = new ArrayList<>();
+        boolean permits = false;
+        while (t < limit && !op(t, '{')) {
+            if (word(t, "extends") || word(t, "implements")) {
+                permits = false;
+                t++;
+            } else if (word(t, "permits")) {
+                permits = true;
+                t++;
+            } else if (op(t, ',')) {
+                t++;
+            } else {
+                int after = skipType(t, limit);
+                if (after < 0) {
+                    return recover(t, limit);
+                }
+                if (!permits) {
+                    supertypes.add(simpleName(t, after));
+                }
+                t = after;
+            }
+        }
+        if (t >= limit) {
+            return limit;
+        }
+        int close = match[t];
+        Declaration type = add(new Declaration(kind, tokenText(nameToken), false, header, "", components, "",
+                Collections.unmodifiableList(supertypes), from[nameToken], from[t], endOffset(close), owner));
+        body(t + 1, close, type);
+        return close + 1;
+    }
+
+    private void body(int t, int limit, Declaration type) {
+        if (type.kind == ENUM) {
+            t = enumConstants(t, limit, type);
+        }
+        while (t < limit) {
+            if (op(t, ';')) {
+                t++;
+            } else {
+                t = member(t, limit, type);
+            }
+        }
+    }
+
+    private int enumConstants(int t, int limit, Declaration type) {
+        while (t < limit) {
+            Header header = new Header(from[t]);
+            t = modifiers(t, limit, header);
+            if (!isName(t)) {
+                return op(t, ';') ? t + 1 : t;
+            }
+            int nameToken = t++;
+            if (op(t, '(')) {
+                code(t + 1, match[t], type);
+                t = match[t] + 1;
+            }
+            int bodyStart = -1;
+            int last = t - 1;
+            if (op(t, '{')) {
+                bodyStart = from[t];
+                last = match[t];
+            }
+            Declaration constant = add(new Declaration(ENUM_CONSTANT, tokenText(nameToken), false, header, type.name,
+                    Collections.emptyList(), "", Collections.emptyList(), from[nameToken], bodyStart, endOffset(last), type));
+            if (bodyStart >= 0) {
+                body(t + 1, last, constant);
+                t = last + 1;
+            }
+            if (op(t, ',')) {
+                t++;
+            } else {
+                return op(t, ';') ? t + 1 : t;
+            }
+        }
+        return t;
+    }
+
+    // nameToken is the method or constructor name, followed by its parameter list.
+    private int method(int typeStart, int nameToken, int limit, Header header, Declaration owner, int kind) {
+        String type = kind == METHOD ? render(typeStart, nameToken) : "";
+        int t = nameToken + 1;
+        List<JavaSourceQuickView.ParamInfo> params = parameters(t + 1, match[t]);
+        t = match[t] + 1;
+        while (op(t, '[') && op(t + 1, ']')) {
+            t += 2;
+        }
+        String throwsClause = "";
+        if (word(t, "throws")) {
+            int first = t;
+            while (t < limit && !op(t, '{') && !op(t, ';') && !word(t, "default")) {
+                t++;
+            }
+            throwsClause = render(first, t);
+        }
+        if (word(t, "default")) {
+            t = statementEnd(t, limit);
+        }
+        int bodyStart = -1;
+        int last;
+        if (op(t, '{')) {
+            bodyStart = from[t];
+            last = match[t];
+        } else if (op(t, ';')) {
+            last = t;
+        } else {
+            return recover(t, limit);
+        }
+        String name = tokenText(nameToken);
+        Declaration decl = add(new Declaration(kind, name, false, header, type, params, throwsClause,
+                Collections.emptyList(), from[nameToken], bodyStart, endOffset(last), owner));
+        if (bodyStart >= 0) {
+            code(t + 1, last, decl);
+        }
+        return last + 1;
+    }
+
+    // One declaration per declarator of a field statement; initializers are searched for classes.
+    private int fields(int typeStart, int nameToken, int limit, Header header, Declaration owner) {
+        String type = render(typeStart, nameToken);
+        int semi = statementEnd(nameToken, limit);
+        List<Integer> names = new ArrayList<>();
+        names.add(nameToken);
+        for (int t = nameToken + 1; t < semi; t++) {
+            if (op(t, ',') && isName(t + 1) && (op(t + 2, '=') || op(t + 2, ',') || op(t + 2, ';') || op(t + 2, '['))) {
+                names.add(t + 1);
+            } else if (bracket(t, "([{") >= 0) {
+                t = match[t];
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            int name = names.get(i);
+            Declaration field = add(new Declaration(FIELD, tokenText(name), false, header, type, Collections.emptyList(), "",
+                    Collections.emptyList(), from[name], -1, endOffset(semi), owner));
+            code(name + 1, i + 1 < names.size() ? names.get(i + 1) : semi, field);
+        }
+        return semi + 1;
+    }
+
+    // Statements and expressions: only class declarations and instance creations matter here.
+    private void code(int t, int limit, Declaration owner) {
+        while (t < limit) {
+            if (word(t, "new")) {
+                t = creation(t + 1, limit, owner);
+            } else if (startsType(t) && !op(t - 1, '.')) {
+                t = typeDeclaration(t, limit, new Header(from[t]), owner);
+            } else {
+                t++;
+            }
+        }
+    }
+
+    private int creation(int t, int limit, Declaration owner) {
+        int typeStart = t;
+        int after = skipType(t, limit);
+        if (after < 0 || !op(after, '(')) {
+            return t;
+        }
+        int close = match[after];
+        code(after + 1, close, owner);
+        if (close + 1 >= limit || !op(close + 1, '{')) {
+            return close + 1;
+        }
+        int open = close + 1;
+        int end = match[open];
+        List<String> supertypes = Collections.singletonList(simpleName(typeStart, after));
+        Declaration anonymous = add(new Declaration(CLASS, supertypes.get(0), true, new Header(from[typeStart - 1]), "",
+                Collections.emptyList(), "", supertypes, from[typeStart], from[open], endOffset(end), owner));
+        body(open + 1, end, anonymous);
+        return end + 1;
+    }
+
+    private List<JavaSourceQuickView.ParamInfo> parameters(int t, int limit) {
+        List<JavaSourceQuickView.ParamInfo> params = new ArrayList<>();
+        while (t < limit) {
+            Header ignored = new Header(from[t]);
+            t = modifiers(t, limit, ignored);
+            int typeStart = t;
+            int end = t;
+            int angle = 0;
+            while (end < limit && !(angle == 0 && op(end, ','))) {
+                if (op(end, '<')) {
+                    angle++;
+                } else if (op(end, '>')) {
+                    angle--;
+                } else if (bracket(end, "([{") >= 0) {
+                    end = match[end];
+                }
+                end++;
+            }
+            int name = end - 1;
+            while (name > typeStart && (op(name, ']') || op(name, '['))) {
+                name--;
+            }
+            if (name > typeStart && (isName(name) || word(name, "this"))) {
+                params.add(new JavaSourceQuickView.ParamInfo(render(typeStart, name), tokenText(name)));
+            }
+            t = end + 1;
+        }
+        return params;
+    }
+
+    // Token after the type starting at t, or -1 when t does not start a type.
+    private int skipType(int t, int limit) {
+        while (true) {
+            while (t < limit && kinds[t] == JavaLexer.ANNOTATION) {
+                t = annotationEnd(t);
+            }
+            if (t >= limit || !(isName(t) || (kinds[t] == JavaLexer.KEYWORD && isTypeKeyword(t)))) {
+                return -1;
+            }
+            t++;
+            if (op(t, '<')) {
+                t = skipAngle(t, limit);
+                if (t < 0) {
+                    return -1;
+                }
+            }
+            if (op(t, '.') && t + 1 < limit && (isName(t + 1) || kinds[t + 1] == JavaLexer.ANNOTATION)) {
+                t++;
+            } else {
+                break;
+            }
+        }
+        while (op(t, '[') && op(t + 1, ']')) {
+            t += 2;
+        }
+        if (op(t, '.') && op(t + 1, '.') && op(t + 2, '.')) {
+            t += 3;
+        }
+        return t;
+    }
+
+    // Token after the annotation at t, whose name may be qualified and which may take arguments.
+    private int annotationEnd(int t) {
+        t++;
+        while (op(t, '.') && isName(t + 1)) {
+            t += 2;
+        }
+        return op(t, '(') ? match[t] + 1 : t;
+    }
+
+    private boolean isTypeKeyword(int t) {
+        return word(t, "void") || word(t, "int") || word(t, "long") || word(t, "boolean") || word(t, "double")
+                || word(t, "float") || word(t, "char") || word(t, "byte") || word(t, "short");
+    }
+
+    // Token after the type arguments opening at t, or -1 when they are not type arguments.
+    private int skipAngle(int t, int limit) {
+        int depth = 0;
+        for (; t < limit; t++) {
+            if (op(t, '<')) {
+                depth++;
+            } else if (op(t, '>')) {
+                if (--depth == 0) {
+                    return t + 1;
+                }
+            } else if (kinds[t] == JavaLexer.ANNOTATION) {
+                t = annotationEnd(t) - 1;
+            } else if (!(isName(t) || kinds[t] == JavaLexer.KEYWORD || op(t, ',') || op(t, '.') || op(t, '?') || op(t, '&') || op(t, '[') || op(t, ']'))) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // The ';' ending the statement at t, jumping over brackets; stops early at the body's end.
+    private int statementEnd(int t, int limit) {
+        while (t < limit && !op(t, ';')) {
+            if (bracket(t, "([{") >= 0) {
+                t = match[t];
+            } else if (op(t, '}')) {
+                return t;
+            }
+            t++;
+        }
+        return Math.min(t, limit);
+    }
+
+    // Skips something that is not a declaration: up to a ';' or past a block.
+    private int recover(int t, int limit) {
+        while (t < limit) {
+            if (op(t, ';')) {
+                return t + 1;
+            }
+            if (op(t, '{')) {
+                return match[t] + 1;
+            }
+            t++;
+        }
+        return limit;
+    }
+
+    private Declaration add(Declaration declaration) {
+        (declaration.parent != null ? declaration.parent.children : top).add(declaration);
+        return declaration;
+    }
+
+    private int endOffset(int token) {
+        return token < n ? to[token] - 1 : Math.max(0, text.length() - 1);
+    }
+
+    // Last simple name of the type in [t, end), before any type arguments.
+    private String simpleName(int t, int end) {
+        String name = "";
+        for (; t < end && !op(t, '<'); t++) {
+            if (isName(t) || kinds[t] == JavaLexer.KEYWORD) {
+                name = tokenText(t);
+            }
+        }
+        return name;
+    }
+
+    // Source text of the tokens in [t, end) with comments dropped and spacing collapsed.
+    private String render(int t, int end) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = t; i < end && i < n; i++) {
+            if (i > t && from[i] > to[i - 1] && !opIn(i - 1, "<([.") && !opIn(i, ">)].,<[")) {
+                sb.append(' ');
+            } else if (i > t && opIn(i - 1, ",")) {
+                sb.append(' ');
+            }
+            sb.append(text, from[i], to[i]);
+        }
+        return sb.toString();
+    }
+
+    private boolean opIn(int t, String chars) {
+        return kinds[t] == JavaLexer.OPERATOR && chars.indexOf(text.charAt(from[t])) >= 0;
+    }
+
+    private String tokenText(int t) {
+        return text.subSequence(from[t], to[t]).toString();
+    }
+
+    private boolean isName(int t) {
+        if (t >= n) {
+            return false;
+        }
+        int kind = kinds[t];
+        return kind == JavaLexer.IDENTIFIER || kind == JavaLexer.CLASS_NAME || kind == JavaLexer.METHOD || kind == JavaLexer.FIELD;
+    }
+
+    private boolean op(int t, char c) {
+        return t >= 0 && t < n && kinds[t] == JavaLexer.OPERATOR && text.charAt(from[t]) == c;
+    }
+
+    private boolean word(int t, String w) {
+        return t < n && (kinds[t] == JavaLexer.KEYWORD || isName(t)) && is(t, w);
+    }
+
+    private boolean is(int t, String s) {
+        if (t >= n || to[t] - from[t] != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (text.charAt(from[t] + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,481 @@
+package javasourcequickview;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * In-memory snapshot of the directories and {@code .java} files below a project root.
+ * The disk is walked once when a folder is opened; name filtering then runs against
+ * this snapshot only. Paths excluded by the default list or a {@code .gitignore} are
+ * never listed. Files are also kept by simple type name as directories are listed and
+ * dropped, so a type resolves to its source file even while the first scan runs.
+ */
+final class ProjectIndex {
+
+    static final Comparator<Entry> ENTRY_ORDER = (a, b) -> {
+        if (a.directory != b.directory) {
+            return a.directory ? -1 : 1;
+        }
+        return a.name.compareToIgnoreCase(b.name);
+    };
+
+    private static final Entry[] NO_CHILDREN = new Entry[0];
+
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final DirectoryScanner scanner = new DirectoryScanner(this);
+    private final List<String> excludePatterns;
+    private final IgnoreRules defaultExcludes;
+    private final Entry root;
+    private final Map<String, Entry[]> byTypeName = new ConcurrentHashMap<>();
+    private volatile boolean complete;
+
+    private ProjectIndex(File rootDir, List<String> excludes) {
+        this.excludePatterns = excludes;
+        this.defaultExcludes = IgnoreRules.parse(excludes);
+        BasicFileAttributes attrs = null;
+        try {
+            attrs = Files.readAttributes(rootDir.toPath(), BasicFileAttributes.class);
+        } catch (IOException ignored) {
+            // the scan will come back empty
+        }
+        this.root = newEntry(null, rootDir, true, attrs != null ? DirectoryScanner.loopKey(rootDir.toPath(), attrs) : null);
+        if (attrs != null) {
+            root.lastModified = attrs.lastModifiedTime().toMillis();
+        }
+    }
+
+    static ProjectIndex create(File rootDir) {
+        return new ProjectIndex(rootDir, IgnoreRules.defaultExcludes());
+    }
+
+    /**
+     * Lists the whole tree into this index. {@code listed} is called from scanner threads
+     * each time a directory's children have been filled in, parents before children.
+     */
+    void scan(BooleanSupplier cancelled, Consumer<Entry> listed) {
+        scanner.scan(root, cancelled, listed);
+    }
+
+    /** Records that every directory has been listed, from the disk or from a stored snapshot. */
+    void markComplete() {
+        complete = true;
+    }
+
+    /** Whether a type missing from {@link #resolveType} is really absent rather than not listed yet. */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /** Fills in the children of a directory listed for the first time. */
+    void setChildren(Entry dir, Entry[] children) {
+        dir.children = children;
+        for (Entry child : children) {
+            if (!child.directory) {
+                addTypeName(child);
+            }
+        }
+    }
+
+    /**
+     * Re-reads one directory after a change notification and swaps in its new children.
+     * New subdirectories are scanned in full; {@code listed} sees every directory that
+     * was listed along the way. Only the watcher thread calls this once the initial scan
+     * is over.
+     *
+     * @param touched names reported as changed inside {@code dir}, or {@code null} when
+     *                only a changed modification time or size counts
+     */
+    Changes refresh(Entry dir, Set<String> touched, Consumer<Entry> listed) {
+        Changes changes = new Changes();
+        if (dir.detached) {
+            return changes;
+        }
+        try {
+            dir.lastModified = Files.getLastModifiedTime(dir.file.toPath()).toMillis();
+        } catch (IOException ignored) {
+            // gone; the parent's listing will drop it
+        }
+        if (touched == null || touched.contains(".gitignore")) {
+            dir.ignoreRules = null;
+        }
+        Entry[] before = dir.getChildren();
+        Set<Entry> rewritten = Collections.newSetFromMap(new IdentityHashMap<>());
+        Entry[] after = scanner.relist(dir, rewritten);
+        Set<Entry> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(Arrays.asList(after));
+        for (Entry old : before) {
+            if (!kept.contains(old)) {
+                detach(old, changes.removedFiles);
+            }
+        }
+        Set<Entry> previous = Collections.newSetFromMap(new IdentityHashMap<>());
+        previous.addAll(Arrays.asList(before));
+        for (Entry entry : after) {
+            if (previous.contains(entry)) {
+                if (!entry.directory && (rewritten.contains(entry) || (touched != null && touched.contains(entry.name)))) {
+                    changes.modifiedFiles.add(entry.file);
+                }
+            } else if (entry.directory) {
+                scanner.scanAdded(entry, listed);
+                collectFiles(entry, changes.addedFiles);
+            } else {
+                addTypeName(entry);
+                changes.addedFiles.add(entry.file);
+            }
+        }
+        changes.structural = !Arrays.equals(before, after);
+        dir.children = after;
+        listed.accept(dir);
+        return changes;
+    }
+
+    private void detach(Entry entry, List<File> removedFiles) {
+        entry.detached = true;
+        if (!entry.directory) {
+            removeTypeName(entry);
+            removedFiles.add(entry.file);
+            return;
+        }
+        for (Entry child : entry.getChildren()) {
+            detach(child, removedFiles);
+        }
+    }
+
+    private static void collectFiles(Entry entry, List<File> files) {
+        for (Entry child : entry.getChildren()) {
+            if (child.directory) {
+                collectFiles(child, files);
+            } else {
+                files.add(child.file);
+            }
+        }
+    }
+
+    /**
+     * Compares every indexed directory's modification time with the disk and lists the
+     * ones that differ again. Used after restoring a stored snapshot; file contents are
+     * checked lazily through their outlines.
+     */
+    Changes revalidate(BooleanSupplier cancelled, Consumer<Entry> listed) {
+        List<Entry> stale = scanner.findStale(directories(), cancelled);
+        Changes changes = new Changes();
+        for (Entry dir : stale) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            changes.addAll(refresh(dir, null, listed));
+        }
+        return changes;
+    }
+
+    private void addTypeName(Entry file) {
+        byTypeName.merge(typeName(file), new Entry[]{file}, (old, added) -> {
+            Entry[] merged = Arrays.copyOf(old, old.length + 1);
+            merged[old.length] = file;
+            return merged;
+        });
+    }
+
+    private void removeTypeName(Entry file) {
+        byTypeName.computeIfPresent(typeName(file), (name, old) -> {
+            List<Entry> rest = new ArrayList<>(Arrays.asList(old));
+            rest.remove(file);
+            return rest.isEmpty() ? null : rest.toArray(new Entry[0]);
+        });
+    }
+
+    private static String typeName(Entry file) {
+        return file.name.substring(0, file.name.length() - ".java".length());
+    }
+
+    /**
+     * The source file declaring {@code typeName} as seen from a file in package
+     * {@code packageName} with the given imports. Among files of the same simple name a
+     * package named in the type itself wins, then a single-type import, the referring
+     * file's own package and on-demand imports; packages are matched against the
+     * directories holding each file. With no match the first file by path is used.
+     */
+    Entry resolveType(String typeName, String packageName, List<String> imports) {
+        int dot = typeName.lastIndexOf('.');
+        String simple = typeName.substring(dot + 1);
+        Entry[] candidates = byTypeName.get(simple);
+        if (candidates == null) {
+            return null;
+        }
+        if (candidates.length == 1) {
+            return candidates[0];
+        }
+        List<String> packages = new ArrayList<>();
+        if (dot > 0) {
+            packages.add(typeName.substring(0, dot));
+        }
+        for (String name : imports) {
+            if (name.endsWith("." + simple)) {
+                packages.add(name.substring(0, name.length() - simple.length() - 1));
+            }
+        }
+        packages.add(packageName);
+        for (String name : imports) {
+            if (name.endsWith(".*")) {
+                packages.add(name.substring(0, name.length() - 2));
+            }
+        }
+        for (String pkg : packages) {
+            for (Entry candidate : candidates) {
+                if (inPackage(candidate, pkg)) {
+                    return candidate;
+                }
+            }
+        }
+        Entry first = candidates[0];
+        for (Entry candidate : candidates) {
+            if (candidate.file.getPath().compareTo(first.file.getPath()) < 0) {
+                first = candidate;
+            }
+        }
+        return first;
+    }
+
+    // Whether the directories above the file end with the package's segments.
+    private static boolean inPackage(Entry file, String pkg) {
+        if (pkg.isEmpty()) {
+            return false;
+        }
+        Entry dir = file.parent;
+        for (int end = pkg.length(); end > 0; ) {
+            int start = pkg.lastIndexOf('.', end - 1) + 1;
+            if (dir == null || !dir.name.regionMatches(0, pkg, start, end - start) || dir.name.length() != end - start) {
+                return false;
+            }
+            dir = dir.parent;
+            end = start - 1;
+        }
+        return true;
+    }
+
+    Entry find(File file) {
+        List<Entry> chain = pathTo(file);
+        Entry last = chain.get(chain.size() - 1);
+        return last.file.equals(file) ? last : null;
+    }
+
+    List<Entry> directories() {
+        List<Entry> dirs = new ArrayList<>();
+        Deque<Entry> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Entry dir = pending.pop();
+            dirs.add(dir);
+            for (Entry child : dir.getChildren()) {
+                if (child.directory) {
+                    pending.push(child);
+                }
+            }
+        }
+        return dirs;
+    }
+
+    Entry getRoot() {
+        return root;
+    }
+
+    List<String> getExcludePatterns() {
+        return excludePatterns;
+    }
+
+    Entry newEntry(Entry parent, File file, boolean directory, Object fileKey) {
+        return new Entry(nextId.getAndIncrement(), parent, file, directory, fileKey);
+    }
+
+    /**
+     * Returns the entries from the root down to {@code file}, stopping at the deepest
+     * ancestor that is indexed.
+     */
+    List<Entry> pathTo(File file) {
+        List<Entry> chain = new ArrayList<>();
+        chain.add(root);
+        Path rootPath = root.file.toPath().toAbsolutePath().normalize();
+        Path target = file.toPath().toAbsolutePath().normalize();
+        if (!target.startsWith(rootPath)) {
+            return chain;
+        }
+        Entry current = root;
+        for (Path segment : rootPath.relativize(target)) {
+            String name = segment.toString();
+            Entry next = null;
+            for (Entry child : current.getChildren()) {
+                if (child.name.equals(name)) {
+                    next = child;
+                    break;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            chain.add(next);
+            current = next;
+        }
+        return chain;
+    }
+
+    /**
+     * Whether {@code name} inside {@code dir} is excluded. The nearest {@code .gitignore}
+     * with a matching pattern decides; the default list is consulted last.
+     */
+    boolean isIgnored(Entry dir, String name, boolean directory) {
+        String relative = name;
+        for (Entry e = dir; ; e = e.parent) {
+            IgnoreRules rules = e.ignoreRules;
+            if (rules == null) {
+                rules = IgnoreRules.load(e.file);
+                e.ignoreRules = rules;
+            }
+            Boolean ignored = rules.match(relative, directory);
+            if (ignored != null) {
+                return ignored;
+            }
+            if (e.parent == null) {
+                break;
+            }
+            relative = e.name + "/" + relative;
+        }
+        return Boolean.TRUE.equals(defaultExcludes.match(relative, directory));
+    }
+
+    static boolean isJavaFile(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".java");
+    }
+
+    /**
+     * Computes which entries survive the given (lower-case) name filter. A directory is
+     * visible when any file below it matches; the root is always visible.
+     */
+    View filter(String filter) {
+        String needle = filter != null ? filter : "";
+        BitSet visible = new BitSet(nextId.get());
+        markVisible(root, needle, visible);
+        visible.set(root.id);
+        return new View(needle, visible);
+    }
+
+    private boolean markVisible(Entry entry, String filter, BitSet visible) {
+        boolean match;
+        if (entry.directory) {
+            match = false;
+            for (Entry child : entry.getChildren()) {
+                if (markVisible(child, filter, visible)) {
+                    match = true;
+                }
+            }
+        } else {
+            match = filter.isEmpty() || entry.lowerName.contains(filter);
+        }
+        if (match) {
+            visible.set(entry.id);
+        }
+        return match;
+    }
+
+    static final class Entry {
+
+        final Entry parent;
+        final File file;
+        final String name;
+        final String lowerName;
+        final boolean directory;
+        final int id;
+        final Object fileKey;
+        volatile long lastModified;
+        volatile long size;
+        volatile Entry[] children;
+        volatile FileOutline outline;
+        volatile boolean detached;
+        volatile IgnoreRules ignoreRules;
+
+        Entry(int id, Entry parent, File file, boolean directory, Object fileKey) {
+            this.id = id;
+            this.parent = parent;
+            this.file = file;
+            this.name = file.getName().isEmpty() ? file.getAbsolutePath() : file.getName();
+            this.lowerName = name.toLowerCase(Locale.ROOT);
+            this.directory = directory;
+            this.fileKey = fileKey;
+        }
+
+        Entry[] getChildren() {
+            Entry[] c = children;
+            return c != null ? c : NO_CHILDREN;
+        }
+    }
+
+    static final class Changes {
+
+        final List<File> addedFiles = new ArrayList<>();
+        final List<File> removedFiles = new ArrayList<>();
+        final List<File> modifiedFiles = new ArrayList<>();
+        boolean structural;
+
+        boolean isEmpty() {
+            return !structural && addedFiles.isEmpty() && removedFiles.isEmpty() && modifiedFiles.isEmpty();
+        }
+
+        void addAll(Changes other) {
+            addedFiles.addAll(other.addedFiles);
+            removedFiles.addAll(other.removedFiles);
+            modifiedFiles.addAll(other.modifiedFiles);
+            structural |= other.structural;
+        }
+    }
+
+    static final class View {
+
+        final String filter;
+        private final BitSet visible;
+
+        View(String filter, BitSet visible) {
+            this.filter = filter;
+            this.visible = visible;
+        }
+
+        boolean isVisible(Entry entry) {
+            return visible.get(entry.id);
+        }
+
+        /**
+         * Extends the view with a directory whose children were listed after the view was
+         * computed: matching files become visible along with every ancestor.
+         */
+        void include(Entry dir) {
+            boolean any = false;
+            for (Entry child : dir.getChildren()) {
+                if (!child.directory && (filter.isEmpty() || child.lowerName.contains(filter))) {
+                    visible.set(child.id);
+                    any = true;
+                }
+            }
+            for (Entry e = dir; any && e != null && !visible.get(e.id); e = e.parent) {
+                visible.set(e.id);
+            }
+        }
+    }
+}
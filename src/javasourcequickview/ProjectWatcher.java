@@ -0,0 +1,145 @@
+package javasourcequickview;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a {@link ProjectIndex} in step with the disk. Events are collected until the file
+ * system has been quiet for a moment (a branch switch arrives as a storm of them), then
+ * only the directories that reported something are listed again.
+ */
+final class ProjectWatcher implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(ProjectWatcher.class.getName());
+    private static final long QUIET_MILLIS = 250;
+    private static final long MAX_BATCH_MILLIS = 2000;
+
+    private final ProjectIndex index;
+    private final Consumer<ProjectIndex.Changes> onChange;
+    private final Map<WatchKey, ProjectIndex.Entry> keys = new ConcurrentHashMap<>();
+    private final Set<ProjectIndex.Entry> watched = ConcurrentHashMap.newKeySet();
+    private final WatchService service;
+    private final Thread thread;
+
+    ProjectWatcher(ProjectIndex index, Consumer<ProjectIndex.Changes> onChange) throws IOException {
+        this.index = index;
+        this.onChange = onChange;
+        this.service = FileSystems.getDefault().newWatchService();
+        this.thread = new Thread(this::run, "project-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // After close(), waits at most millis for a batch the thread is still applying to the index.
+    void awaitClosed(long millis) throws InterruptedException {
+        thread.join(millis);
+    }
+
+    private void register(ProjectIndex.Entry dir) {
+        if (!watched.add(dir)) {
+            return;
+        }
+        try {
+            WatchKey key = dir.file.toPath().register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            keys.put(key, dir);
+        } catch (ClosedWatchServiceException ignored) {
+            // shutting down
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "Cannot watch " + dir.file, ex);
+        }
+    }
+
+    private void run() {
+        for (ProjectIndex.Entry dir : index.directories()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            register(dir);
+        }
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Map<ProjectIndex.Entry, Set<String>> pending = new LinkedHashMap<>();
+                collect(service.take(), pending);
+                long deadline = System.currentTimeMillis() + MAX_BATCH_MILLIS;
+                WatchKey next;
+                while (System.currentTimeMillis() < deadline
+                        && (next = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(next, pending);
+                }
+                apply(pending);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // watcher closed
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, "Project watcher stopped", ex);
+        }
+    }
+
+    // A null name set means the key overflowed and the whole directory has to be compared.
+    private void collect(WatchKey key, Map<ProjectIndex.Entry, Set<String>> pending) {
+        ProjectIndex.Entry dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (dir == null) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                pending.put(dir, null);
+            } else if (!pending.containsKey(dir) || pending.get(dir) != null) {
+                pending.computeIfAbsent(dir, d -> new HashSet<>()).add(((Path) event.context()).toString());
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+
+    private void apply(Map<ProjectIndex.Entry, Set<String>> pending) {
+        ProjectIndex.Changes changes = new ProjectIndex.Changes();
+        for (Map.Entry<ProjectIndex.Entry, Set<String>> e : pending.entrySet()) {
+            changes.addAll(index.refresh(e.getKey(), e.getValue(), this::register));
+        }
+        for (Iterator<Map.Entry<WatchKey, ProjectIndex.Entry>> it = keys.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<WatchKey, ProjectIndex.Entry> e = it.next();
+            if (e.getValue().detached) {
+                e.getKey().cancel();
+                watched.remove(e.getValue());
+                it.remove();
+            }
+        }
+        if (!changes.isEmpty()) {
+            onChange.accept(changes);
+        }
+    }
+}
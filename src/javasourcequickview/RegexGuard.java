@@ -0,0 +1,92 @@
+package javasourcequickview;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs regular expressions over source text with a budget. The matcher reads the text
+ * through a wrapper that counts character reads and periodically checks the clock and the
+ * thread's interrupt flag, so a pattern that backtracks badly on some input is stopped
+ * instead of holding its thread, which is often the EDT. A stopped match throws
+ * {@link Exhausted}; callers keep whatever they had found so far.
+ */
+final class RegexGuard {
+
+    private static final Logger LOG = Logger.getLogger(RegexGuard.class.getName());
+
+    /** Character reads allowed per character of input, on top of a fixed allowance. */
+    private static final long STEPS_PER_CHAR = 400;
+    private static final long BASE_STEPS = 1_000_000;
+    private static final long DEFAULT_MILLIS = 100;
+
+    private final String task;
+    private final long maxSteps;
+    private final long deadline;
+    private final long started = System.nanoTime();
+    private long steps;
+
+    private RegexGuard(String task, long maxSteps, long maxMillis) {
+        this.task = task;
+        this.maxSteps = maxSteps;
+        this.deadline = started + maxMillis * 1_000_000L;
+    }
+
+    /** A budget shared by every match made through it, sized for scanning {@code text} a few times. */
+    static RegexGuard forText(String task, CharSequence text) {
+        return new RegexGuard(task, BASE_STEPS + STEPS_PER_CHAR * text.length(), DEFAULT_MILLIS);
+    }
+
+    Matcher matcher(Pattern pattern, CharSequence text) {
+        return pattern.matcher(new Guarded(text));
+    }
+
+    private void step() {
+        if (++steps > maxSteps || ((steps & 0xfff) == 0 && (System.nanoTime() > deadline || Thread.currentThread().isInterrupted()))) {
+            long millis = (System.nanoTime() - started) / 1_000_000;
+            LOG.log(Level.INFO, "Regex budget exhausted for " + task + " after " + steps + " steps, " + millis
+                    + " ms; falling back to a degraded result");
+            throw new Exhausted();
+        }
+    }
+
+    /** Thrown from inside the matcher once the budget is spent. */
+    static final class Exhausted extends RuntimeException {
+
+        Exhausted() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final class Guarded implements CharSequence {
+
+        private final CharSequence text;
+
+        Guarded(CharSequence text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            step();
+            return text.charAt(index);
+        }
+
+        // Groups are copied out of the plain text; only the matching itself is metered.
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
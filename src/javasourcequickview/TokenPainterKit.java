@@ -0,0 +1,144 @@
+package javasourcequickview;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.PlainView;
+import javax.swing.text.Segment;
+import javax.swing.text.Utilities;
+import javax.swing.text.ViewFactory;
+
+/**
+ * Editor kit for the lightweight viewer mode: the text lives in a plain
+ * {@code PlainDocument} and colours are painted straight from a {@link JavaLexer} token
+ * array stored as a document property, so no attribute runs or style elements exist.
+ */
+final class TokenPainterKit extends DefaultEditorKit {
+
+    static final String TOKENS_PROPERTY = "javaTokens";
+
+    // Lines longer than this skip the text left of the clip instead of drawing it.
+    private static final int LONG_RUN_CHARS = 1000;
+
+    private final Color[] colors;
+    private final int[] fontStyles;
+
+    /** Both arrays are indexed by token kind; a null colour paints the token as plain text. */
+    TokenPainterKit(Color[] colors, int[] fontStyles) {
+        this.colors = colors;
+        this.fontStyles = fontStyles;
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/x-java";
+    }
+
+    @Override
+    public ViewFactory getViewFactory() {
+        return TokenView::new;
+    }
+
+    /** Drops the tokens that paint like plain text, leaving only what the view needs. */
+    int[] paintedTokens(int[] tokens) {
+        int[] kept = new int[tokens.length];
+        int size = 0;
+        for (int t = 0; t < JavaLexer.count(tokens); t++) {
+            if (colors[JavaLexer.kind(tokens, t)] != null) {
+                kept[size++] = JavaLexer.start(tokens, t);
+                kept[size++] = JavaLexer.length(tokens, t);
+                kept[size++] = JavaLexer.kind(tokens, t);
+            }
+        }
+        return Arrays.copyOf(kept, size);
+    }
+
+    private final class TokenView extends PlainView {
+
+        private Font baseFont;
+        private Font[] fonts;
+
+        TokenView(Element elem) {
+            super(elem);
+        }
+
+        @Override
+        protected int drawUnselectedText(Graphics g, int x, int y, int p0, int p1) throws BadLocationException {
+            Document doc = getDocument();
+            Object property = doc.getProperty(TOKENS_PROPERTY);
+            if (!(property instanceof int[])) {
+                return super.drawUnselectedText(g, x, y, p0, p1);
+            }
+            int[] tokens = (int[]) property;
+            Color plain = getContainer().getForeground();
+            Font[] kindFonts = fontsFor(getContainer().getFont(), g);
+            Segment segment = getLineBuffer();
+            Rectangle clip = g.getClipBounds();
+            int pos = p0;
+            if (clip != null && p1 - p0 > LONG_RUN_CHARS && x < clip.x) {
+                // every face has the base advance, so the hidden prefix can be measured in one go
+                doc.getText(p0, p1 - p0, segment);
+                FontMetrics metrics = g.getFontMetrics(baseFont);
+                int skip = Utilities.getTabbedTextOffset(segment, metrics, x, clip.x, this, p0, false);
+                segment.count = skip;
+                x += Utilities.getTabbedTextWidth(segment, metrics, x, this, p0);
+                pos += skip;
+            }
+            int right = clip != null ? clip.x + clip.width : Integer.MAX_VALUE;
+            int t = firstTokenEndingAfter(tokens, pos);
+            while (pos < p1 && x <= right) {
+                int end;
+                int kind = -1;
+                if (t < JavaLexer.count(tokens) && JavaLexer.start(tokens, t) <= pos) {
+                    kind = JavaLexer.kind(tokens, t);
+                    end = Math.min(p1, JavaLexer.start(tokens, t) + JavaLexer.length(tokens, t));
+                    t++;
+                } else {
+                    end = t < JavaLexer.count(tokens) ? Math.min(p1, JavaLexer.start(tokens, t)) : p1;
+                }
+                doc.getText(pos, end - pos, segment);
+                g.setColor(kind >= 0 ? colors[kind] : plain);
+                g.setFont(kind >= 0 ? kindFonts[kind] : baseFont);
+                x = Utilities.drawTabbedText(segment, x, y, g, this, pos);
+                pos = end;
+            }
+            g.setFont(baseFont);
+            return x;
+        }
+
+        // Bold or italic faces are only used when they keep the monospaced advance, so caret math stays right.
+        private Font[] fontsFor(Font font, Graphics g) {
+            if (!font.equals(baseFont)) {
+                baseFont = font;
+                fonts = new Font[fontStyles.length];
+                int advance = g.getFontMetrics(font).charWidth('m');
+                for (int k = 0; k < fonts.length; k++) {
+                    Font derived = font.deriveFont(fontStyles[k]);
+                    fonts[k] = g.getFontMetrics(derived).charWidth('m') == advance ? derived : font;
+                }
+            }
+            return fonts;
+        }
+
+        private int firstTokenEndingAfter(int[] tokens, int offset) {
+            int lo = 0;
+            int hi = JavaLexer.count(tokens);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (JavaLexer.start(tokens, mid) + JavaLexer.length(tokens, mid) <= offset) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}